@@ -0,0 +1,83 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author avijayvargiy <br>
+ * Tokenization throughput: the {@link Analyzer} splitting, lower casing, stemming and filtering a megabyte of
+ * text, with and without its stem cache. The bytes counter gives the rate in bytes per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AnalyzerBenchmark {
+
+	/**
+	 * slots of the stem cache, 0 stems every token
+	 */
+	@Param({ "0", "4096" })
+	public int stemCacheSize;
+
+	private String text;
+	private int textBytes;
+	private Analyzer analyzer;
+	private final TermCounter counter = new TermCounter();
+
+	@Setup
+	public void setUp() {
+		text = new SyntheticCorpus(42, 50000, 1.0).text(150000);
+		textBytes = text.getBytes(StandardCharsets.UTF_8).length;
+		analyzer = new Analyzer(stemCacheSize);
+	}
+
+	@Benchmark
+	public int analyze(Throughput throughput) {
+		counter.terms = 0;
+		analyzer.analyze(text, counter);
+		throughput.bytes += textBytes;
+		return counter.terms;
+	}
+
+	/**
+	 * bytes analyzed, reported per second.
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Throughput {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	/*
+	 * keeps the terms from being optimized away.
+	 */
+	private static final class TermCounter implements Analyzer.TermConsumer {
+		int terms;
+
+		public void accept(char term[], int length) {
+			terms += length;
+		}
+	}
+}
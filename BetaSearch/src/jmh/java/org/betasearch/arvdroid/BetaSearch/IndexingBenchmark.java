@@ -0,0 +1,86 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author avijayvargiy <br>
+ * Indexing throughput of {@link SearchEngine#build()} over a generated directory of documents, by corpus size and
+ * number of indexing threads. The bytes counter gives the rate in bytes of text per second.<br>
+ * The documents are written once per trial, so after the first iteration they are read from the page cache and the
+ * benchmark measures tokenizing and indexing rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class IndexingBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int documents;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	@Param({ "false", "true" })
+	public boolean positions;
+
+	private File dir;
+	private long corpusBytes;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("betasearch-bench").toFile();
+		corpusBytes = new SyntheticCorpus(42, 50000, 1.0).writeDocuments(dir, documents, 200);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SyntheticCorpus.delete(dir);
+	}
+
+	@Benchmark
+	public int build(Throughput throughput) throws IOException {
+		SearchEngine se = new SearchEngine(dir.getAbsolutePath(), ResultType.DOCUMENT_NAME);
+		se.setIndexingThreads(threads);
+		se.setStorePositions(positions);
+		se.setProgress(null); //the console would be measured along with the index
+		se.build();
+		se.close();
+		throughput.bytes += corpusBytes;
+		return se.getN();
+	}
+
+	/**
+	 * bytes indexed, reported per second.
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Throughput {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author avijayvargiy <br>
+ * Latency of {@link SearchEngine#query(String, int)} by corpus size, number of results and similarity.<br>
+ * Every invocation runs the next of a fixed mix of queries: frequent words only, frequent and rare words together
+ * and rare words only, from one to four terms. The query cache is switched off, otherwise all but the first round
+ * of the mix would be cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueryBenchmark {
+
+	//ranks of the words of each query, 0 is the most frequent word
+	private static final int QUERIES[][] = { { 0 }, { 30 }, { 3000 }, { 0, 1 }, { 30, 300 }, { 30, 20000 },
+			{ 0, 40, 400, 4000 }, { 100, 1000, 10000 }, { 5, 25 }, { 2000, 30000 } };
+
+	@Param({ "1000", "10000", "50000" })
+	public int documents;
+
+	/**
+	 * number of results, 10 takes the top-k skipping path, a k beyond the collection scores every match
+	 */
+	@Param({ "10", "1000000" })
+	public int k;
+
+	@Param({ "cosine", "bm25" })
+	public String similarity;
+
+	private File dir;
+	private SearchEngine se;
+	private String queries[];
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("betasearch-bench").toFile();
+		SyntheticCorpus corpus = new SyntheticCorpus(42, 50000, 1.0);
+		corpus.writeDocuments(dir, documents, 200);
+		queries = new String[QUERIES.length];
+		for (int q = 0; q < QUERIES.length; q++) {
+			StringBuilder sb = new StringBuilder();
+			for (int rank : QUERIES[q]) {
+				sb.append(corpus.word(rank)).append(' ');
+			}
+			queries[q] = sb.toString().trim();
+		}
+		se = new SearchEngine(dir.getAbsolutePath(), ResultType.DOCUMENT_NAME);
+		se.setIndexingThreads(Runtime.getRuntime().availableProcessors());
+		se.setProgress(null);
+		se.build();
+		se.setSimilarity(similarity.equals("bm25") ? new BM25Similarity() : new CosineSimilarity());
+		se.getQueryCache().setLimits(0, 0);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		se.close();
+		SyntheticCorpus.delete(dir);
+	}
+
+	@Benchmark
+	public SearchResult[] query() {
+		String query = queries[next];
+		next = (next + 1) % queries.length;
+		return se.query(query, k);
+	}
+}
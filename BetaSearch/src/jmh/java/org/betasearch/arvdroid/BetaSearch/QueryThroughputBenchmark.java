@@ -0,0 +1,132 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author avijayvargiy <br>
+ * Throughput of {@link SearchEngine#query(String, int)} with 1, 2 and 4 threads and with one thread per core, all
+ * querying the same engine. Queries share only the immutable snapshot, each thread has its own query state, so the
+ * queries per second should grow linearly with the threads up to the number of cores.<br>
+ * Every thread runs the mix of {@link QueryBenchmark} from its own starting point, with the query cache switched off.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueryThroughputBenchmark {
+
+	//ranks of the words of each query, 0 is the most frequent word
+	private static final int QUERIES[][] = { { 0 }, { 30 }, { 3000 }, { 0, 1 }, { 30, 300 }, { 30, 20000 },
+			{ 0, 40, 400, 4000 }, { 100, 1000, 10000 }, { 5, 25 }, { 2000, 30000 } };
+
+	/**
+	 * the engine every thread queries
+	 */
+	@State(Scope.Benchmark)
+	public static class Engine {
+
+		@Param({ "10000", "50000" })
+		public int documents;
+
+		/**
+		 * number of results, 10 takes the top-k skipping path, a k beyond the collection scores every match
+		 */
+		@Param({ "10", "1000000" })
+		public int k;
+
+		private File dir;
+		private SearchEngine se;
+		private String queries[];
+
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			dir = Files.createTempDirectory("betasearch-bench").toFile();
+			SyntheticCorpus corpus = new SyntheticCorpus(42, 50000, 1.0);
+			corpus.writeDocuments(dir, documents, 200);
+			queries = new String[QUERIES.length];
+			for (int q = 0; q < QUERIES.length; q++) {
+				StringBuilder sb = new StringBuilder();
+				for (int rank : QUERIES[q]) {
+					sb.append(corpus.word(rank)).append(' ');
+				}
+				queries[q] = sb.toString().trim();
+			}
+			se = new SearchEngine(dir.getAbsolutePath(), ResultType.DOCUMENT_NAME);
+			se.setIndexingThreads(Runtime.getRuntime().availableProcessors());
+			se.setProgress(null);
+			se.build();
+			se.getQueryCache().setLimits(0, 0);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			se.close();
+			SyntheticCorpus.delete(dir);
+		}
+	}
+
+	/**
+	 * where a thread is in the query mix, threads start at different queries so they do not run in lock step
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		private static int started;
+		private int next;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			synchronized (Cursor.class) {
+				next = started++ % QUERIES.length;
+			}
+		}
+
+		String next(Engine engine) {
+			String query = engine.queries[next];
+			next = (next + 1) % QUERIES.length;
+			return query;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public SearchResult[] threads1(Engine engine, Cursor cursor) {
+		return engine.se.query(cursor.next(engine), engine.k);
+	}
+
+	@Benchmark
+	@Threads(2)
+	public SearchResult[] threads2(Engine engine, Cursor cursor) {
+		return engine.se.query(cursor.next(engine), engine.k);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public SearchResult[] threads4(Engine engine, Cursor cursor) {
+		return engine.se.query(cursor.next(engine), engine.k);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public SearchResult[] threadsPerCore(Engine engine, Cursor cursor) {
+		return engine.se.query(cursor.next(engine), engine.k);
+	}
+}
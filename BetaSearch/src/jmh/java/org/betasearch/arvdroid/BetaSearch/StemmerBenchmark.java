@@ -0,0 +1,55 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author avijayvargiy <br>
+ * Time the Porter {@link Stemmer} takes per word, without the analyzer's stem cache in front of it, over words drawn
+ * with the frequencies of running text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StemmerBenchmark {
+
+	private static final int WORDS = 10000;
+
+	private final Stemmer stemmer = new Stemmer();
+	private char words[][];
+
+	@Setup
+	public void setUp() {
+		SyntheticCorpus corpus = new SyntheticCorpus(42, 50000, 1.0);
+		words = new char[WORDS][];
+		for (int i = 0; i < WORDS; i++) {
+			words[i] = corpus.nextWord().toCharArray();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(WORDS)
+	public int stem() {
+		int length = 0;
+		for (char word[] : words) {
+			stemmer.add(word, word.length);
+			stemmer.stem();
+			length += stemmer.getResultLength();
+		}
+		return length;
+	}
+}
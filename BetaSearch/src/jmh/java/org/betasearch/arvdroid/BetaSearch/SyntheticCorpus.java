@@ -0,0 +1,180 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author avijayvargiy <br>
+ * SyntheticCorpus generates English looking text with the word frequencies of real text, so the benchmarks run on
+ * the same input on every machine without shipping a corpus.<br>
+ * The vocabulary is made of syllables with inflections ("-s", "-ing", "-ed", "-ation", ...) for the stemmer to
+ * strip, and the most frequent ranks are common English words. Words are drawn from a Zipf distribution: the word
+ * of rank r occurs with a probability proportional to 1 / (r + 1)^exponent. Sentences start with a capital letter,
+ * end with a period and sometimes contain a number, as the analyzer has to handle all of that.<br>
+ * Everything comes from one seeded Random, the same seed always gives the same vocabulary and the same text.
+ * Not thread safe.
+ */
+public class SyntheticCorpus {
+
+	private static final String COMMON[] = { "the", "of", "and", "to", "a", "in", "is", "it", "that", "was", "for",
+			"on", "with", "as", "he", "she", "they", "at", "by", "this", "from", "or", "had", "not", "but" };
+	private static final String ONSETS[] = { "b", "c", "d", "f", "g", "h", "l", "m", "n", "p", "r", "s", "t", "v",
+			"w", "br", "cr", "dr", "gr", "pl", "st", "tr", "sh", "th", "ch" };
+	private static final String VOWELS[] = { "a", "e", "i", "o", "u", "ea", "ou", "ai" };
+	private static final String CODAS[] = { "", "", "n", "r", "l", "t", "s", "nd", "rt", "ck" };
+	private static final String SUFFIXES[] = { "", "", "", "s", "s", "ing", "ed", "er", "ly", "ness", "ation",
+			"ement", "ful", "ize", "able" };
+
+	private final Random random;
+	private final String words[]; //rank -> word
+	private final double cumulative[]; //rank -> probability of drawing a word of at most that rank
+
+	/**
+	 * @param seed seed of every random choice
+	 * @param vocabularySize number of distinct words
+	 * @param exponent Zipf exponent, about 1 for natural language
+	 */
+	public SyntheticCorpus(long seed, int vocabularySize, double exponent) {
+		if (vocabularySize < COMMON.length) {
+			throw new IllegalArgumentException("vocabulary must have at least " + COMMON.length + " words: " + vocabularySize);
+		}
+		this.random = new Random(seed);
+		this.words = new String[vocabularySize];
+		Set < String > used = new HashSet < String > (Arrays.asList(COMMON));
+		System.arraycopy(COMMON, 0, words, 0, COMMON.length);
+		for (int rank = COMMON.length; rank < vocabularySize; rank++) {
+			String word;
+			do {
+				word = newWord();
+			} while (!used.add(word));
+			words[rank] = word;
+		}
+		this.cumulative = new double[vocabularySize];
+		double sum = 0;
+		for (int rank = 0; rank < vocabularySize; rank++) {
+			sum += 1 / Math.pow(rank + 1, exponent);
+			cumulative[rank] = sum;
+		}
+		for (int rank = 0; rank < vocabularySize; rank++) {
+			cumulative[rank] /= sum;
+		}
+	}
+
+	/**
+	 * @param rank 0 for the most frequent word
+	 * @return the word of that rank
+	 */
+	public String word(int rank) {
+		return words[rank];
+	}
+
+	/**
+	 * @return number of distinct words
+	 */
+	public int vocabularySize() {
+		return words.length;
+	}
+
+	/**
+	 * @return a word drawn from the Zipf distribution
+	 */
+	public String nextWord() {
+		int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+		return words[Math.min(rank < 0 ? -rank - 1 : rank, words.length - 1)];
+	}
+
+	/**
+	 * @param tokens number of words
+	 * @return text of that many words cut into sentences
+	 */
+	public String text(int tokens) {
+		StringBuilder sb = new StringBuilder(tokens * 8);
+		appendText(sb, tokens);
+		return sb.toString();
+	}
+
+	/**
+	 * writes count documents named doc0.txt, doc1.txt, ... of meanLength words on average.
+	 * @param dir directory to write to, created if missing
+	 * @param count number of documents
+	 * @param meanLength average number of words per document, lengths vary from half to one and a half times that
+	 * @return number of bytes written
+	 * @throws IOException if a document cannot be written
+	 */
+	public long writeDocuments(File dir, int count, int meanLength) throws IOException {
+		Files.createDirectories(dir.toPath());
+		long bytes = 0;
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.setLength(0);
+			appendText(sb, meanLength / 2 + random.nextInt(meanLength + 1));
+			byte encoded[] = sb.toString().getBytes(StandardCharsets.UTF_8);
+			Files.write(new File(dir, "doc" + i + ".txt").toPath(), encoded);
+			bytes += encoded.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * deletes a directory of generated documents.
+	 * @param dir directory written by writeDocuments
+	 */
+	public static void delete(File dir) {
+		File files[] = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				delete(f);
+			}
+		}
+		dir.delete();
+	}
+
+	/*
+	 * sentences of 5 to 20 words, one word in fifty a number.
+	 */
+	private void appendText(StringBuilder sb, int tokens) {
+		int sentenceLeft = 0;
+		for (int i = 0; i < tokens; i++) {
+			if (i > 0) {
+				sb.append(sentenceLeft == 0 ? ". " : " ");
+			}
+			boolean capital = sentenceLeft == 0;
+			if (sentenceLeft == 0) {
+				sentenceLeft = 5 + random.nextInt(16);
+			}
+			sentenceLeft--;
+			if (random.nextInt(50) == 0) {
+				sb.append(random.nextInt(3000));
+				continue;
+			}
+			String word = nextWord();
+			if (capital) {
+				sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+			} else {
+				sb.append(word);
+			}
+		}
+		if (tokens > 0) {
+			sb.append('.');
+		}
+	}
+
+	/*
+	 * one to three syllables and an inflection.
+	 */
+	private String newWord() {
+		StringBuilder sb = new StringBuilder();
+		int syllables = 1 + random.nextInt(3);
+		for (int s = 0; s < syllables; s++) {
+			sb.append(ONSETS[random.nextInt(ONSETS.length)]).append(VOWELS[random.nextInt(VOWELS.length)]);
+		}
+		sb.append(CODAS[random.nextInt(CODAS.length)]).append(SUFFIXES[random.nextInt(SUFFIXES.length)]);
+		return sb.toString();
+	}
+}
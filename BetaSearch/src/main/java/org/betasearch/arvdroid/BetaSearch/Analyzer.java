@@ -0,0 +1,177 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+
+/**
+ * @author avijayvargiy <br>
+ * Analyzer turns text into index terms, the same way for documents and for queries:<br>
+ *  1)splitting on whitespace (Tokenization)<br>
+ *  2)lower casing<br>
+ *  3)Stemming with the Porter stemmer<br>
+ *  4)Filtering for letters i.e. separating out non-alphabets out of the stemmed word<br>
+ * Tokens that have no letter left are dropped.<br>
+ * The analyzer works over its own char window and one reused Stemmer and hands every term to a
+ * {@link TermConsumer} as a char buffer, so analyzing creates no garbage per token. Text can be fed in
+ * chunks; a token cut by a chunk boundary is carried over to the next chunk.<br>
+ * What the stemming and filtering made of a token is remembered in a {@link StemCache}, so a word that occurs
+ * again is looked up instead of stemmed again.<br>
+ * An analyzer is not thread safe, every thread uses its own.
+ * <pre>
+ * {@code
+ *  analyzer.feed(chunk1, 0, n1, consumer);
+ *  analyzer.feed(chunk2, 0, n2, consumer);
+ *  analyzer.end(consumer);
+ * }
+ * </pre>
+ */
+public final class Analyzer {
+
+	/**
+	 * receives the terms produced by an analyzer.
+	 */
+	public interface TermConsumer {
+		/**
+		 * @param term buffer holding the term, only valid until this method returns
+		 * @param length number of characters of the term at the start of the buffer
+		 */
+		void accept(char term[], int length);
+	}
+
+	/**
+	 * number of slots of an analyzer's stem cache by default
+	 */
+	public static final int DEFAULT_STEM_CACHE_SIZE = 4096;
+
+	private final Stemmer stemmer = new Stemmer();
+	private final StemCache stemCache; //null if disabled
+	private final char cachedTerm[] = new char[StemCache.MAX_TOKEN_LENGTH]; //a cached term handed to the consumer
+	private char token[] = new char[64]; //lower cased characters of the token being read
+	private int tokenLength;
+
+	public Analyzer() {
+		this(DEFAULT_STEM_CACHE_SIZE);
+	}
+
+	/**
+	 * @param stemCacheSize number of slots of the stem cache, 0 stems every token
+	 */
+	public Analyzer(int stemCacheSize) {
+		if (stemCacheSize < 0) {
+			throw new IllegalArgumentException("stem cache size must not be negative: " + stemCacheSize);
+		}
+		this.stemCache = stemCacheSize == 0 ? null : new StemCache(stemCacheSize);
+	}
+
+	/**
+	 * analyzes a chunk of text. A token running up to the end of the chunk is kept until the next call.
+	 * @param text characters
+	 * @param offset first character to read
+	 * @param length number of characters to read
+	 * @param consumer receives the terms
+	 */
+	public void feed(char text[], int offset, int length, TermConsumer consumer) {
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			char c = text[i];
+			if (isWhitespace(c)) {
+				if (tokenLength > 0) {
+					emit(consumer);
+				}
+			} else {
+				append(c);
+			}
+		}
+	}
+
+	/**
+	 * analyzes a chunk of text held in any CharSequence, for example a CharBuffer.
+	 * @param text characters
+	 * @param consumer receives the terms
+	 */
+	public void feed(CharSequence text, TermConsumer consumer) {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (isWhitespace(c)) {
+				if (tokenLength > 0) {
+					emit(consumer);
+				}
+			} else {
+				append(c);
+			}
+		}
+	}
+
+	/**
+	 * signals the end of the text, emitting the last token if one is pending.
+	 * @param consumer receives the terms
+	 */
+	public void end(TermConsumer consumer) {
+		if (tokenLength > 0) {
+			emit(consumer);
+		}
+	}
+
+	/**
+	 * analyzes a complete text, for example a query.
+	 * @param text text to analyze
+	 * @param consumer receives the terms
+	 */
+	public void analyze(CharSequence text, TermConsumer consumer) {
+		tokenLength = 0;
+		feed(text, consumer);
+		end(consumer);
+	}
+
+	private void append(char c) {
+		if (tokenLength == token.length) {
+			token = Arrays.copyOf(token, tokenLength * 2);
+		}
+		token[tokenLength++] = Character.toLowerCase(c);
+	}
+
+	/*
+	 * emits the cached term of the pending token, or stems it, filters the letters in place in the stemmer's result
+	 * buffer and caches that.
+	 */
+	private void emit(TermConsumer consumer) {
+		int length = tokenLength;
+		tokenLength = 0;
+		boolean cacheable = stemCache != null && length <= StemCache.MAX_TOKEN_LENGTH;
+		int hash = 0;
+		if (cacheable) {
+			hash = StemCache.hash(token, length);
+			int slot = stemCache.find(token, length, hash);
+			if (slot >= 0) {
+				int termLength = stemCache.term(slot, cachedTerm);
+				if (termLength > 0) {
+					consumer.accept(cachedTerm, termLength);
+				}
+				return;
+			}
+		}
+		stemmer.add(token, length);
+		stemmer.stem();
+		char result[] = stemmer.getResultBuffer();
+		int resultLength = stemmer.getResultLength();
+		int j = 0;
+		for (int i = 0; i < resultLength; i++) {
+			if (Character.isLetter(result[i])) {
+				result[j++] = result[i];
+			}
+		}
+		if (cacheable) {
+			stemCache.put(token, length, hash, result, j);
+		}
+		if (j > 0) {
+			consumer.accept(result, j);
+		}
+	}
+
+	/*
+	 * the delimiters StringTokenizer uses by default.
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+	}
+}
@@ -0,0 +1,85 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * BM25Similarity is Okapi BM25:
+ * <pre>
+ * {@code
+ *  score(d) = sum over the query terms of tf(q) * idf * tf(d) * (k1 + 1) / (tf(d) + k1 * (1 - b + b * length(d) / averageLength))
+ *  idf = log(1 + (N - df + 0.5) / (df + 0.5))
+ * }
+ * </pre>
+ * k1 says how quickly repeating a term stops paying off, b how much long documents are penalized. The part of the
+ * denominator after tf(d) only depends on the document and is its {@link #documentFactor}.<br>
+ * The block bounds use the highest term frequency of a block with the smallest factor possible, that of an empty
+ * document, so they are looser than the cosine ones but need nothing BM25 specific in the index.
+ */
+public class BM25Similarity extends Similarity {
+
+	private final double k1;
+	private final double b;
+
+	/**
+	 * k1 = 1.2, b = 0.75
+	 */
+	public BM25Similarity() {
+		this(1.2, 0.75);
+	}
+
+	/**
+	 * @param k1 term frequency saturation, at least 0
+	 * @param b length normalization, from 0 (none) to 1 (full)
+	 */
+	public BM25Similarity(double k1, double b) {
+		if (k1 < 0 || b < 0 || b > 1) {
+			throw new IllegalArgumentException("k1 must be at least 0 and b between 0 and 1: k1=" + k1 + ", b=" + b);
+		}
+		this.k1 = k1;
+		this.b = b;
+	}
+
+	public double idf(int documentFrequency, int numDocs) {
+		return Math.log(1 + (numDocs - documentFrequency + 0.5) / (documentFrequency + 0.5));
+	}
+
+	public void queryWeights(int queryFrequencies[], double idfs[], double weights[]) {
+		for (int i = 0; i < queryFrequencies.length; i++) {
+			weights[i] = queryFrequencies[i] * idfs[i];
+		}
+	}
+
+	public double documentFactor(double norm, int length, double averageLength) {
+		return k1 * (1 - b + (averageLength > 0 ? b * length / averageLength : 0));
+	}
+
+	public double score(int termFrequency, double documentFactor) {
+		return termFrequency * (k1 + 1) / (termFrequency + documentFactor);
+	}
+
+	public double blockBound(PostingIterator postings) {
+		return bound(postings.blockMaxTermFrequency());
+	}
+
+	public double listBound(PostingIterator postings) {
+		return bound(postings.maxTermFrequency());
+	}
+
+	/*
+	 * score grows with tf and shrinks with the factor, which is at least k1 * (1 - b).
+	 */
+	private double bound(int maxTermFrequency) {
+		return maxTermFrequency == 0 ? 0 : score(maxTermFrequency, k1 * (1 - b));
+	}
+
+	public double getK1() {
+		return k1;
+	}
+
+	public double getB() {
+		return b;
+	}
+
+	public String toString() {
+		return "BM25(k1=" + k1 + ", b=" + b + ")";
+	}
+}
@@ -0,0 +1,176 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * @author avijayvargiy <br>
+ * BlockMaxWandScorer scores the query terms document at a time and only fully scores documents that can still
+ * enter the top k (Block-Max WAND, Ding and Suel 2011).<br>
+ * Every term has an upper bound on what it can add to a document's score: its weight times the highest score
+ * of a posting in its list, which the {@link Similarity} derives from the skip data. The iterators are kept sorted by their current document; the pivot
+ * is the first document where the bounds of the terms up to it add up to more than the lowest score in the heap.
+ * Documents before the pivot cannot make it and are skipped. The bounds of the blocks holding the pivot are then
+ * checked as well, and if even they are too low every term jumps past the end of the shortest of those blocks
+ * without decoding it.<br>
+ * Scores are identical to those of {@link TermAtATimeScorer}: the postings' scores times the query weights summed in
+ * query term order.
+ */
+public class BlockMaxWandScorer {
+
+	//bounds are inflated slightly so that rounding never lets them drop below a score they bound
+	private static final double SLACK = 1 + 1e-9;
+
+	private PostingIterator terms[] = new PostingIterator[4]; //query order
+	private double weights[] = new double[4];
+	private PostingIterator sorted[] = new PostingIterator[4]; //by current document
+	private double sortedWeights[] = new double[4];
+	private double upperBounds[] = new double[4];
+	private int count;
+	private Similarity similarity;
+	private double factors[];
+
+	/**
+	 * forgets the terms of the previous segment or query.
+	 */
+	public void reset() {
+		Arrays.fill(terms, 0, count, null);
+		Arrays.fill(sorted, 0, count, null);
+		count = 0;
+		factors = null;
+	}
+
+	/**
+	 * adds a query term. The iterator must not be reused for another term before {@link #score} returns.
+	 * @param postings posting list of the term, positioned before its first posting
+	 * @param queryWeight weight of the term in the query, terms of weight 0 are ignored
+	 */
+	public void add(PostingIterator postings, double queryWeight) {
+		if (queryWeight == 0.0) {
+			return;
+		}
+		if (count == terms.length) {
+			terms = Arrays.copyOf(terms, count * 2);
+			weights = Arrays.copyOf(weights, count * 2);
+			sorted = Arrays.copyOf(sorted, count * 2);
+			sortedWeights = Arrays.copyOf(sortedWeights, count * 2);
+			upperBounds = Arrays.copyOf(upperBounds, count * 2);
+		}
+		terms[count] = postings;
+		weights[count] = queryWeight;
+		count++;
+	}
+
+	/**
+	 * offers every document of the index that can still enter the top k to the collector.
+	 * @param similarity ranking function
+	 * @param documentFactors the similarity's document factor of every document of the index
+	 * @param deleted documents not to collect, or null
+	 * @param base added to the document ids handed to the collector
+	 * @param topk collector, may already hold documents with lower ids from other segments
+	 */
+	public void score(Similarity similarity, double documentFactors[], BitSet deleted, int base, TopKCollector topk) {
+		this.similarity = similarity;
+		this.factors = documentFactors;
+		for (int i = 0; i < count; i++) {
+			terms[i].nextDoc();
+			sorted[i] = terms[i];
+			sortedWeights[i] = weights[i];
+			upperBounds[i] = bound(weights[i], similarity.listBound(terms[i]));
+		}
+		sort();
+		while (true) {
+			double threshold = topk.minCompetitiveScore();
+			int pivot = -1;
+			double sum = 0;
+			for (int i = 0; i < count && sorted[i].docId() != PostingIterator.NO_MORE_DOCS; i++) {
+				sum += upperBounds[i];
+				if (sum > threshold) {
+					pivot = i;
+					break;
+				}
+			}
+			if (pivot < 0) {
+				return; //even all remaining terms together cannot beat the heap
+			}
+			int pivotDoc = sorted[pivot].docId();
+			while (pivot + 1 < count && sorted[pivot + 1].docId() == pivotDoc) {
+				pivot++;
+			}
+			double blockSum = 0;
+			for (int i = 0; i <= pivot; i++) {
+				sorted[i].advanceShallow(pivotDoc);
+				blockSum += bound(sortedWeights[i], similarity.blockBound(sorted[i]));
+			}
+			if (blockSum > threshold) {
+				if (sorted[0].docId() == pivotDoc) {
+					if (deleted == null || !deleted.get(pivotDoc)) {
+						topk.collect(base + pivotDoc, score(pivotDoc));
+					}
+					for (int i = 0; i <= pivot; i++) {
+						sorted[i].nextDoc();
+					}
+				} else {
+					for (int i = 0; i <= pivot && sorted[i].docId() < pivotDoc; i++) {
+						sorted[i].advance(pivotDoc);
+					}
+				}
+			} else {
+				//no document before the first of these blocks ends can score enough, jump past it
+				int next = pivot + 1 < count ? sorted[pivot + 1].docId() : PostingIterator.NO_MORE_DOCS;
+				int strongest = 0;
+				for (int i = 0; i <= pivot; i++) {
+					int last = sorted[i].blockLastDoc();
+					if (last != PostingIterator.NO_MORE_DOCS) {
+						next = Math.min(next, last + 1);
+					}
+					if (upperBounds[i] > upperBounds[strongest]) {
+						strongest = i;
+					}
+				}
+				sorted[strongest].advance(next);
+			}
+			sort();
+		}
+	}
+
+	/*
+	 * score of a document all terms positioned on it contribute to, summed in query order like TermAtATimeScorer.
+	 */
+	private double score(int doc) {
+		double factor = factors[doc];
+		double score = 0.0;
+		for (int i = 0; i < count; i++) {
+			if (terms[i].docId() == doc) {
+				score += similarity.score(terms[i].termFrequency(), factor) * weights[i];
+			}
+		}
+		return score;
+	}
+
+	private static double bound(double weight, double maxScore) {
+		return maxScore * weight * SLACK; //stays infinite for a list without skip data
+	}
+
+	/*
+	 * insertion sort by current document, the array is almost sorted after every step.
+	 */
+	private void sort() {
+		for (int i = 1; i < count; i++) {
+			PostingIterator it = sorted[i];
+			double weight = sortedWeights[i];
+			double upper = upperBounds[i];
+			int doc = it.docId();
+			int j = i - 1;
+			while (j >= 0 && sorted[j].docId() > doc) {
+				sorted[j + 1] = sorted[j];
+				sortedWeights[j + 1] = sortedWeights[j];
+				upperBounds[j + 1] = upperBounds[j];
+				j--;
+			}
+			sorted[j + 1] = it;
+			sortedWeights[j + 1] = weight;
+			upperBounds[j + 1] = upper;
+		}
+	}
+}
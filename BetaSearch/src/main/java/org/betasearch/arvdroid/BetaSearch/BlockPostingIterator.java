@@ -0,0 +1,273 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * BlockPostingIterator decodes a {@link VByte} posting list, see {@link PostingList}, and uses its skip data when the
+ * list has some. Lists longer than {@link PostingList#BLOCK_SIZE} postings are cut into blocks of that many postings;
+ * for every block the skip data holds the last document id, where the block ends in the encoded bytes, the highest
+ * term frequency and the highest impact, what a posting adds to the cosine score for a query term of weight 1.
+ * {@link #advance(int)} gallops over the block boundaries and jumps over whole blocks without decoding them, and
+ * the block maxima bound the score any posting of a block can contribute.<br>
+ * Positions, if the list has any, are a separate stream: nextDoc() only counts how many of them it passes and
+ * {@link #nextPosition()} skips over those and decodes the current document's, so documents whose positions are
+ * never asked for cost nothing beyond the count. The skip data also says where every block's positions end.<br>
+ * Subclasses only say where the bytes and the skip data come from.
+ */
+abstract class BlockPostingIterator implements PostingIterator {
+
+	private int size;
+	private int position;
+	private int remaining;
+	private int docId;
+	private int termFrequency;
+
+	//skip data, blocks is 0 for a list without any
+	int blocks;
+	int blockLastDoc[];
+	int blockEnd[]; //absolute position of the first byte after the block
+	int blockMaxTf[];
+	double blockMaxImpact[];
+	private int shallowBlock; //block the bounds refer to, see advanceShallow
+	private int listMaxTf;
+	private double listMaxImpact;
+
+	//positions, positionPointer is -1 for a list without
+	int blockPositionEnd[]; //absolute position of the first positions byte after the block
+	private int positionPointer;
+	private int positionsToSkip; //positions between positionPointer and the current document's unread ones
+	private int positionsLeft; //unread positions of the current document
+	private int lastPosition;
+
+	/**
+	 * @param position byte position of the first posting
+	 */
+	abstract byte byteAt(int position);
+
+	/**
+	 * @param position byte position in the positions stream
+	 */
+	abstract byte positionByteAt(int position);
+
+	/**
+	 * positions the iterator before the first posting; the skip data fields must be set before.
+	 * @param start byte position of the first posting
+	 * @param size number of postings
+	 * @param positionsStart byte position of the first position, -1 if the list has none
+	 */
+	final void start(int start, int size, int positionsStart) {
+		this.size = size;
+		this.position = start;
+		this.remaining = size;
+		this.docId = -1;
+		this.termFrequency = 0;
+		this.shallowBlock = 0;
+		this.positionPointer = positionsStart;
+		this.positionsToSkip = 0;
+		this.positionsLeft = 0;
+		if (blocks == 0) {
+			listMaxTf = Integer.MAX_VALUE;
+			listMaxImpact = Double.POSITIVE_INFINITY;
+			return;
+		}
+		listMaxTf = 0;
+		listMaxImpact = 0;
+		for (int b = 0; b < blocks; b++) {
+			listMaxTf = Math.max(listMaxTf, blockMaxTf[b]);
+			listMaxImpact = Math.max(listMaxImpact, blockMaxImpact[b]);
+		}
+	}
+
+	/**
+	 * @return byte position of the next posting to decode
+	 */
+	final int position() {
+		return position;
+	}
+
+	public final int nextDoc() {
+		if (remaining == 0) {
+			return docId = NO_MORE_DOCS;
+		}
+		remaining--;
+		int pos = position;
+		int gap = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = byteAt(pos++);
+			gap |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		int tf = 0;
+		shift = 0;
+		do {
+			b = byteAt(pos++);
+			tf |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		position = pos;
+		termFrequency = tf;
+		positionsToSkip += positionsLeft;
+		positionsLeft = tf;
+		lastPosition = 0;
+		return docId = docId < 0 ? gap : docId + gap;
+	}
+
+	public final int advance(int target) {
+		if (docId >= target) {
+			return docId;
+		}
+		if (blocks > 0) {
+			int block = currentBlock();
+			if (blockLastDoc[block] < target) {
+				block = findBlock(block + 1, target);
+				if (block == blocks) {
+					remaining = 0;
+					return docId = NO_MORE_DOCS;
+				}
+				//continue decoding right after the last posting of the previous block
+				position = blockEnd[block - 1];
+				docId = blockLastDoc[block - 1];
+				remaining = size - block * PostingList.BLOCK_SIZE;
+				if (positionPointer >= 0) {
+					positionPointer = blockPositionEnd[block - 1];
+					positionsToSkip = 0;
+					positionsLeft = 0;
+				}
+			}
+		}
+		int doc = docId;
+		while (doc < target) {
+			doc = nextDoc();
+		}
+		return doc;
+	}
+
+	/*
+	 * first block from 'from' on whose last document is at least target, or blocks if there is none.
+	 * Gallops: probes 1, 2, 4, ... blocks ahead, then binary searches the last step, so a long jump costs
+	 * a logarithmic number of probes and a short one almost nothing.
+	 */
+	private int findBlock(int from, int target) {
+		int low = from;
+		int step = 1;
+		int high = from;
+		while (high < blocks && blockLastDoc[high] < target) {
+			low = high + 1;
+			high += step;
+			step <<= 1;
+		}
+		high = Math.min(high, blocks);
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (blockLastDoc[mid] < target) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	public final void advanceShallow(int target) {
+		if (blocks == 0) {
+			return;
+		}
+		int block = Math.max(shallowBlock, currentBlock());
+		while (block < blocks && blockLastDoc[block] < target) {
+			block++;
+		}
+		shallowBlock = block;
+	}
+
+	public final int blockLastDoc() {
+		return blocks == 0 || shallowBlock == blocks ? NO_MORE_DOCS : blockLastDoc[shallowBlock];
+	}
+
+	public final int blockMaxTermFrequency() {
+		if (blocks == 0) {
+			return Integer.MAX_VALUE;
+		}
+		return shallowBlock == blocks ? 0 : blockMaxTf[shallowBlock];
+	}
+
+	public final double blockMaxImpact() {
+		if (blocks == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return shallowBlock == blocks ? 0 : blockMaxImpact[shallowBlock];
+	}
+
+	public final int maxTermFrequency() {
+		return listMaxTf;
+	}
+
+	public final double maxImpact() {
+		return listMaxImpact;
+	}
+
+	public final int docId() {
+		return docId;
+	}
+
+	public final long cost() {
+		return size;
+	}
+
+	public final int termFrequency() {
+		return termFrequency;
+	}
+
+	public final int nextPosition() {
+		if (positionPointer < 0) {
+			throw new IllegalStateException("the index was built without positions");
+		}
+		if (positionsToSkip > 0) {
+			skipPositions(positionsToSkip);
+			positionsToSkip = 0;
+		}
+		positionsLeft--;
+		int pos = positionPointer;
+		int gap = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = positionByteAt(pos++);
+			gap |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		positionPointer = pos;
+		return lastPosition += gap;
+	}
+
+	/**
+	 * skips the unread positions up to the end of the current document.
+	 * @return byte position in the positions stream right after the current document's positions
+	 */
+	final int endOfPositions() {
+		skipPositions(positionsToSkip + positionsLeft);
+		positionsToSkip = 0;
+		positionsLeft = 0;
+		return positionPointer;
+	}
+
+	/*
+	 * moves positionPointer over count encoded positions without decoding their values.
+	 */
+	private void skipPositions(int count) {
+		int pos = positionPointer;
+		for (int i = 0; i < count; i++) {
+			while (positionByteAt(pos++) < 0) {
+			}
+		}
+		positionPointer = pos;
+	}
+
+	/*
+	 * block of the posting decoded last, or of the next one before the first nextDoc().
+	 */
+	private int currentBlock() {
+		int decoded = size - remaining;
+		return decoded == 0 ? 0 : Math.min((decoded - 1) / PostingList.BLOCK_SIZE, blocks - 1);
+	}
+}
@@ -0,0 +1,457 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author avijayvargiy <br>
+ * BooleanQuery is a parsed boolean query: words and phrases combined with AND, OR, NOT, NEAR/k and parentheses.
+ * <pre>
+ * {@code
+ *  hobbit AND (ring OR sword) AND NOT dragon
+ *  hobbit ring              //words next to each other are ANDed
+ *  "lord of the rings"      //the words one right after the other
+ *  frodo NEAR/5 ring        //the words at most 5 positions apart, in any order
+ * }
+ * </pre>
+ * The operators have to be written in capitals, lower case "and", "or" and "not" are ordinary words. NOT binds
+ * tightest, then NEAR, then AND, then OR. Phrases and NEAR need an index built with positions. Every word goes through the same {@link Analyzer} as the documents; a word the
+ * analyzer drops (for example a number) is left out of the query instead of matching nothing.<br>
+ * {@link #iterator(InvertedIndex)} turns the query into {@link DocIterator}s over one index: a posting list per
+ * word, a {@link ConjunctionIterator} per AND and a {@link DisjunctionIterator} per OR.
+ */
+public abstract class BooleanQuery {
+
+	/**
+	 * @param index index to match against
+	 * @return the ids of the matching documents of that index, deleted documents included
+	 */
+	public abstract DocIterator iterator(InvertedIndex index);
+
+	/**
+	 * @param terms receives the words a matching document is rewarded for containing, i.e. all words not under a NOT
+	 */
+	public abstract void positiveTerms(List < String > terms);
+
+	/**
+	 * @param query query text
+	 * @param analyzer analyzer turning words into terms
+	 * @return the parsed query, or null if no word of it survives the analyzer
+	 * @throws IllegalArgumentException if the query is malformed, for example a parenthesis or a quote is not closed
+	 */
+	public static BooleanQuery parse(String query, Analyzer analyzer) {
+		Parser parser = new Parser(tokens(query), analyzer);
+		BooleanQuery parsed = parser.parseOr();
+		if (parser.position < parser.tokens.size()) {
+			throw new IllegalArgumentException("unexpected '" + parser.tokens.get(parser.position) + "' in query: " + query);
+		}
+		return parsed;
+	}
+
+	/*
+	 * splits on whitespace, parentheses are tokens of their own and a quoted phrase is one token that keeps its
+	 * opening quote.
+	 */
+	private static List < String > tokens(String query) {
+		List < String > tokens = new ArrayList < String > ();
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i <= query.length(); i++) {
+			char c = i < query.length() ? query.charAt(i) : ' ';
+			if (c == '"') {
+				int close = query.indexOf('"', i + 1);
+				if (close < 0) {
+					throw new IllegalArgumentException("missing '\"' in query: " + query);
+				}
+				word.append(query, i, close);
+				i = close;
+			} else if (c == '(' || c == ')' || Character.isWhitespace(c)) {
+				if (word.length() > 0) {
+					tokens.add(word.toString());
+					word.setLength(0);
+				}
+				if (!Character.isWhitespace(c)) {
+					tokens.add(String.valueOf(c));
+				}
+			} else {
+				word.append(c);
+			}
+		}
+		return tokens;
+	}
+
+	/*
+	 * recursive descent over:  or := and ("OR" and)*   and := near ("AND"? near)*   near := unary ("NEAR/k" unary)*
+	 *                          unary := "NOT" unary | "(" or ")" | phrase | word
+	 */
+	private static final class Parser {
+		final List < String > tokens;
+		final Analyzer analyzer;
+		int position;
+
+		Parser(List < String > tokens, Analyzer analyzer) {
+			this.tokens = tokens;
+			this.analyzer = analyzer;
+		}
+
+		BooleanQuery parseOr() {
+			List < BooleanQuery > clauses = new ArrayList < BooleanQuery > ();
+			add(clauses, parseAnd());
+			while ("OR".equals(peek())) {
+				position++;
+				add(clauses, parseAnd());
+			}
+			return clauses.isEmpty() ? null : clauses.size() == 1 ? clauses.get(0) : new Or(clauses);
+		}
+
+		BooleanQuery parseAnd() {
+			List < BooleanQuery > clauses = new ArrayList < BooleanQuery > ();
+			add(clauses, parseNear());
+			while (peek() != null && !"OR".equals(peek()) && !")".equals(peek())) {
+				if ("AND".equals(peek())) {
+					position++;
+				}
+				add(clauses, parseNear());
+			}
+			return clauses.isEmpty() ? null : clauses.size() == 1 ? clauses.get(0) : new And(clauses);
+		}
+
+		BooleanQuery parseNear() {
+			BooleanQuery first = parseUnary();
+			if (distance(peek()) < 0) {
+				return first;
+			}
+			List < String > terms = new ArrayList < String > ();
+			int distance = Integer.MAX_VALUE;
+			addNearOperand(terms, first);
+			while (distance(peek()) >= 0) {
+				distance = Math.min(distance, distance(tokens.get(position++)));
+				addNearOperand(terms, parseUnary());
+			}
+			return terms.isEmpty() ? null : terms.size() == 1 ? new Term(terms.get(0)) : new Near(terms, distance);
+		}
+
+		private static void addNearOperand(List < String > terms, BooleanQuery operand) {
+			if (operand instanceof Term) {
+				terms.add(((Term) operand).term);
+			} else if (operand != null) {
+				throw new IllegalArgumentException("NEAR only combines words: " + operand);
+			}
+		}
+
+		BooleanQuery parseUnary() {
+			String token = peek();
+			if (token == null || token.equals(")") || token.equals("AND") || token.equals("OR") || distance(token) >= 0) {
+				throw new IllegalArgumentException("expected a word, 'NOT' or '(' at " + (token == null ? "end of query" : "'" + token + "'"));
+			}
+			position++;
+			if (token.equals("NOT")) {
+				BooleanQuery negated = parseUnary();
+				return negated == null ? null : new Not(negated);
+			}
+			if (token.equals("(")) {
+				BooleanQuery inner = parseOr();
+				if (!")".equals(peek())) {
+					throw new IllegalArgumentException("missing ')'");
+				}
+				position++;
+				return inner;
+			}
+			final List < String > terms = new ArrayList < String > ();
+			analyzer.analyze(token.startsWith("\"") ? token.substring(1) : token, new Analyzer.TermConsumer() {
+				public void accept(char buffer[], int length) {
+					terms.add(new String(buffer, 0, length));
+				}
+			});
+			return terms.isEmpty() ? null : terms.size() == 1 ? new Term(terms.get(0)) : new Phrase(terms);
+		}
+
+		/*
+		 * k of a "NEAR/k" token, -1 for any other token.
+		 */
+		private static int distance(String token) {
+			if (token == null || !token.startsWith("NEAR/") || token.length() == 5 || token.length() > 14) {
+				return -1;
+			}
+			for (int i = 5; i < token.length(); i++) {
+				if (token.charAt(i) < '0' || token.charAt(i) > '9') {
+					return -1;
+				}
+			}
+			long k = Long.parseLong(token.substring(5));
+			return k > Integer.MAX_VALUE ? -1 : (int) k;
+		}
+
+		String peek() {
+			return position < tokens.size() ? tokens.get(position) : null;
+		}
+
+		private static void add(List < BooleanQuery > clauses, BooleanQuery clause) {
+			if (clause != null) {
+				clauses.add(clause);
+			}
+		}
+	}
+
+	/**
+	 * documents containing a word.
+	 */
+	public static final class Term extends BooleanQuery {
+		final String term;
+
+		public Term(String term) {
+			this.term = term;
+		}
+
+		public DocIterator iterator(InvertedIndex index) {
+			int id = index.termId(term);
+			return id < 0 ? new Empty() : index.postings(id, null);
+		}
+
+		public void positiveTerms(List < String > terms) {
+			terms.add(term);
+		}
+
+		public String toString() {
+			return term;
+		}
+	}
+
+	/**
+	 * documents containing words one right after the other.
+	 */
+	public static final class Phrase extends BooleanQuery {
+		final List < String > terms;
+
+		public Phrase(List < String > terms) {
+			this.terms = terms;
+		}
+
+		public DocIterator iterator(InvertedIndex index) {
+			int offsets[] = new int[terms.size()];
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = i;
+			}
+			return positional(index, terms, offsets, 0);
+		}
+
+		public void positiveTerms(List < String > terms) {
+			terms.addAll(this.terms);
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder("\"");
+			for (int i = 0; i < terms.size(); i++) {
+				sb.append(i == 0 ? "" : " ").append(terms.get(i));
+			}
+			return sb.append('"').toString();
+		}
+	}
+
+	/**
+	 * documents containing words at most some positions apart from each other, in any order.
+	 */
+	public static final class Near extends BooleanQuery {
+		final List < String > terms;
+		final int distance;
+
+		public Near(List < String > terms, int distance) {
+			this.terms = terms;
+			this.distance = distance;
+		}
+
+		public DocIterator iterator(InvertedIndex index) {
+			return positional(index, terms, new int[terms.size()], distance);
+		}
+
+		public void positiveTerms(List < String > terms) {
+			terms.addAll(this.terms);
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder("(");
+			for (int i = 0; i < terms.size(); i++) {
+				sb.append(i == 0 ? "" : " NEAR/" + distance + " ").append(terms.get(i));
+			}
+			return sb.append(')').toString();
+		}
+	}
+
+	/*
+	 * a ProximityIterator over the words, or an empty iterator if one of them is missing from the index.
+	 */
+	private static DocIterator positional(InvertedIndex index, List < String > terms, int offsets[], int window) {
+		if (!index.hasPositions()) {
+			throw new IllegalStateException("phrase and NEAR queries need an index built with positions");
+		}
+		PostingIterator postings[] = new PostingIterator[terms.size()];
+		for (int i = 0; i < postings.length; i++) {
+			int id = index.termId(terms.get(i));
+			if (id < 0) {
+				return new Empty();
+			}
+			postings[i] = index.postings(id, null);
+		}
+		return new ProximityIterator(postings, offsets, window);
+	}
+
+	/**
+	 * documents matching every clause.
+	 */
+	public static final class And extends BooleanQuery {
+		final List < BooleanQuery > clauses;
+
+		public And(List < BooleanQuery > clauses) {
+			this.clauses = clauses;
+		}
+
+		public DocIterator iterator(InvertedIndex index) {
+			List < DocIterator > required = new ArrayList < DocIterator > ();
+			List < DocIterator > excluded = new ArrayList < DocIterator > ();
+			for (BooleanQuery clause : clauses) {
+				if (clause instanceof Not) {
+					excluded.add(((Not) clause).negated.iterator(index)); //a AND NOT b needs no complement of b
+				} else {
+					DocIterator it = clause.iterator(index);
+					if (it instanceof Empty) {
+						return it;
+					}
+					required.add(it);
+				}
+			}
+			if (required.isEmpty()) {
+				required.add(new All(index.numDocs()));
+			}
+			return new ConjunctionIterator(required.toArray(new DocIterator[required.size()]), excluded.toArray(new DocIterator[excluded.size()]));
+		}
+
+		public void positiveTerms(List < String > terms) {
+			for (BooleanQuery clause : clauses) {
+				clause.positiveTerms(terms);
+			}
+		}
+
+		public String toString() {
+			return join(clauses, " AND ");
+		}
+	}
+
+	/**
+	 * documents matching at least one clause.
+	 */
+	public static final class Or extends BooleanQuery {
+		final List < BooleanQuery > clauses;
+
+		public Or(List < BooleanQuery > clauses) {
+			this.clauses = clauses;
+		}
+
+		public DocIterator iterator(InvertedIndex index) {
+			List < DocIterator > iterators = new ArrayList < DocIterator > ();
+			for (BooleanQuery clause : clauses) {
+				DocIterator it = clause.iterator(index);
+				if (!(it instanceof Empty)) {
+					iterators.add(it);
+				}
+			}
+			if (iterators.isEmpty()) {
+				return new Empty();
+			}
+			return iterators.size() == 1 ? iterators.get(0) : new DisjunctionIterator(iterators.toArray(new DocIterator[iterators.size()]));
+		}
+
+		public void positiveTerms(List < String > terms) {
+			for (BooleanQuery clause : clauses) {
+				clause.positiveTerms(terms);
+			}
+		}
+
+		public String toString() {
+			return join(clauses, " OR ");
+		}
+	}
+
+	/**
+	 * documents not matching a clause.
+	 */
+	public static final class Not extends BooleanQuery {
+		final BooleanQuery negated;
+
+		public Not(BooleanQuery negated) {
+			this.negated = negated;
+		}
+
+		public DocIterator iterator(InvertedIndex index) {
+			return new ConjunctionIterator(new DocIterator[] { new All(index.numDocs()) }, new DocIterator[] { negated.iterator(index) });
+		}
+
+		public void positiveTerms(List < String > terms) {
+			//documents are not rewarded for what they lack
+		}
+
+		public String toString() {
+			return "NOT " + (negated instanceof Term ? negated.toString() : "(" + negated + ")");
+		}
+	}
+
+	private static String join(List < BooleanQuery > clauses, String operator) {
+		StringBuilder sb = new StringBuilder("(");
+		for (int i = 0; i < clauses.size(); i++) {
+			sb.append(i == 0 ? "" : operator).append(clauses.get(i));
+		}
+		return sb.append(')').toString();
+	}
+
+	/*
+	 * every document id of an index.
+	 */
+	private static final class All implements DocIterator {
+		private final int maxDoc;
+		private int docId = -1;
+
+		All(int maxDoc) {
+			this.maxDoc = maxDoc;
+		}
+
+		public int nextDoc() {
+			return docId = docId + 1 < maxDoc ? docId + 1 : NO_MORE_DOCS;
+		}
+
+		public int advance(int target) {
+			if (docId >= target) {
+				return docId;
+			}
+			return docId = target < maxDoc ? target : NO_MORE_DOCS;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public long cost() {
+			return maxDoc;
+		}
+	}
+
+	/*
+	 * no document at all, for a word missing from the index.
+	 */
+	private static final class Empty implements DocIterator {
+		private int docId = -1;
+
+		public int nextDoc() {
+			return docId = NO_MORE_DOCS;
+		}
+
+		public int advance(int target) {
+			return docId = NO_MORE_DOCS;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public long cost() {
+			return 0;
+		}
+	}
+}
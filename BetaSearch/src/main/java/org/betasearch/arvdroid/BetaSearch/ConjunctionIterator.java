@@ -0,0 +1,84 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * @author avijayvargiy <br>
+ * ConjunctionIterator returns the documents all of its iterators return and none of its excluded ones do
+ * (a AND b AND NOT c).<br>
+ * The cheapest iterator leads; every document it proposes is looked up in the others with advance(), which
+ * gallops over the skip data of posting lists. As soon as one of them lands beyond the candidate, the lead
+ * jumps straight to that document instead, so the cost is driven by the shortest list and not by the longest.
+ */
+public class ConjunctionIterator implements DocIterator {
+
+	private final DocIterator iterators[]; //cheapest first
+	private final DocIterator excluded[];
+	private int docId = -1;
+
+	/**
+	 * @param iterators documents must be in all of these, at least one
+	 * @param excluded documents must be in none of these
+	 */
+	public ConjunctionIterator(DocIterator iterators[], DocIterator excluded[]) {
+		this.iterators = iterators.clone();
+		this.excluded = excluded.clone();
+		Arrays.sort(this.iterators, new Comparator < DocIterator > () {
+			public int compare(DocIterator a, DocIterator b) {
+				return Long.compare(a.cost(), b.cost());
+			}
+		});
+	}
+
+	public int nextDoc() {
+		return docId = align(iterators[0].nextDoc());
+	}
+
+	public int advance(int target) {
+		if (docId >= target) {
+			return docId;
+		}
+		return docId = align(iterators[0].advance(target));
+	}
+
+	/*
+	 * leapfrogs from the lead's candidate to the first document every iterator agrees on.
+	 */
+	private int align(int candidate) {
+		while (candidate != NO_MORE_DOCS) {
+			int i = 1;
+			for (; i < iterators.length; i++) {
+				int doc = iterators[i].advance(candidate);
+				if (doc != candidate) {
+					candidate = iterators[0].advance(doc);
+					break;
+				}
+			}
+			if (i == iterators.length) {
+				if (!isExcluded(candidate)) {
+					return candidate;
+				}
+				candidate = iterators[0].nextDoc();
+			}
+		}
+		return NO_MORE_DOCS;
+	}
+
+	private boolean isExcluded(int doc) {
+		for (DocIterator e : excluded) {
+			if (e.advance(doc) == doc) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int docId() {
+		return docId;
+	}
+
+	public long cost() {
+		return iterators[0].cost();
+	}
+}
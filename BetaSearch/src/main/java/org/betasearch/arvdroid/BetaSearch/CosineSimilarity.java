@@ -0,0 +1,61 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * CosineSimilarity ranks by the cosine of the angle between the query and the document vectors, both weighted
+ * with tf-idf:<br>
+ *  1)query term weight (1+log tf(q)) * log(N/df), the query vector normalized to length 1<br>
+ *  2)document term weight (1+log tf(d)) / norm(d), norm(d) being the length of the (1+log tf(d)) vector<br>
+ * The skip data stores the highest document term weight of every block ({@link #impact}), which bounds the scores
+ * exactly.
+ */
+public class CosineSimilarity extends Similarity {
+
+	public double idf(int documentFrequency, int numDocs) {
+		return Math.log((double) numDocs / documentFrequency);
+	}
+
+	public void queryWeights(int queryFrequencies[], double idfs[], double weights[]) {
+		double norm = 0.0;
+		for (int i = 0; i < queryFrequencies.length; i++) {
+			weights[i] = (1 + Math.log(queryFrequencies[i])) * idfs[i];
+			norm = norm + weights[i] * weights[i];
+		}
+		norm = Math.sqrt(norm);
+		for (int i = 0; norm > 0 && i < queryFrequencies.length; i++) {
+			weights[i] = weights[i] / norm;
+		}
+	}
+
+	/**
+	 * @return 1/norm, 0 for a document without terms
+	 */
+	public double documentFactor(double norm, int length, double averageLength) {
+		return norm > 0 ? 1 / norm : 0;
+	}
+
+	public double score(int termFrequency, double documentFactor) {
+		return (1 + Math.log(termFrequency)) * documentFactor;
+	}
+
+	public double blockBound(PostingIterator postings) {
+		return postings.blockMaxImpact();
+	}
+
+	public double listBound(PostingIterator postings) {
+		return postings.maxImpact();
+	}
+
+	/**
+	 * @param termFrequency term frequency in a document
+	 * @param norm length norm of the document
+	 * @return the document term weight (1+log tf)/norm(d), what the posting adds to the score for a query term of weight 1
+	 */
+	static double impact(int termFrequency, double norm) {
+		return (1 + Math.log(termFrequency)) / norm;
+	}
+
+	public String toString() {
+		return "cosine";
+	}
+}
@@ -1,13 +1,11 @@
 package org.betasearch.arvdroid.BetaSearch;
 
-import java.util.LinkedList;
-
 /**
  * @author avijayvargiy
- *Dictionary represents the individual word in a Dictionary and its posting list containing variables of type posting.
+ *Dictionary represents the individual word in a Dictionary and its posting list of document ids and term frequencies.
  */
 public class Dictionary implements Comparable<Dictionary>{
-	LinkedList<Posting> list; //It represents postings of that particular word in a dictionary.
+	PostingList list; //It represents postings of that particular word in a dictionary.
 	String term; //It represents word or the term.
 	int documentFrequency=0; //It represents how many documents that particular word has occured
 	public int compareTo(Dictionary o) {
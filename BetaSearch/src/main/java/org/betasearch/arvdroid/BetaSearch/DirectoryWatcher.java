@@ -0,0 +1,141 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author avijayvargiy <br>
+ * DirectoryWatcher runs a callback on a background thread whenever files are created, modified or deleted in a
+ * directory. Events arriving close together (for example while a large file is being copied) are coalesced:
+ * the callback only runs once the directory has been quiet for a short while.<br>
+ * The events are only a trigger; what actually changed is worked out by the callback, for example by
+ * {@link IncrementalIndexer}, so lost or overflowing events do no harm.<br>
+ * A recursive watcher watches the sub directories as well, including the ones created while it runs.
+ */
+public class DirectoryWatcher implements Closeable {
+
+	private final WatchService watchService;
+	private final Runnable onChange;
+	private final long quietMillis;
+	private final boolean recursive;
+	private final Thread thread;
+
+	/**
+	 * starts watching the directory itself, not its sub directories.
+	 * @param dir directory to watch
+	 * @param onChange called on the watcher thread after changes
+	 * @param quietMillis how long the directory has to be quiet before onChange runs
+	 * @throws IOException if the directory cannot be watched
+	 */
+	public DirectoryWatcher(Path dir, Runnable onChange, long quietMillis) throws IOException {
+		this(dir, onChange, quietMillis, false);
+	}
+
+	/**
+	 * starts watching.
+	 * @param dir directory to watch
+	 * @param onChange called on the watcher thread after changes
+	 * @param quietMillis how long the directory has to be quiet before onChange runs
+	 * @param recursive whether to watch the sub directories too
+	 * @throws IOException if the directory cannot be watched
+	 */
+	public DirectoryWatcher(Path dir, Runnable onChange, long quietMillis, boolean recursive) throws IOException {
+		this.onChange = onChange;
+		this.quietMillis = quietMillis;
+		this.recursive = recursive;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		register(dir);
+		thread = new Thread(new Runnable() {
+			public void run() {
+				watch();
+			}
+		}, "betasearch-watcher-" + dir.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				//drain this key and every key that follows within the quiet period
+				while (key != null) {
+					for (WatchEvent < ? > event : key.pollEvents()) {
+						if (recursive && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+							Path created = ((Path) key.watchable()).resolve((Path) event.context());
+							if (Files.isDirectory(created)) {
+								registerQuietly(created);
+							}
+						}
+					}
+					key.reset();
+					key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+				}
+				try {
+					onChange.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			//closed, stop watching
+		}
+	}
+
+	/*
+	 * watches dir, and every directory below it if recursive.
+	 */
+	private void register(Path dir) throws IOException {
+		if (!recursive) {
+			registerDirectory(dir);
+			return;
+		}
+		Files.walkFileTree(dir, new SimpleFileVisitor < Path > () {
+			public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+				registerDirectory(d);
+				return FileVisitResult.CONTINUE;
+			}
+
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				return FileVisitResult.CONTINUE; //an unreadable sub directory is not watched
+			}
+		});
+	}
+
+	/*
+	 * a directory created while watching; it may be gone again or unreadable, which only means it is not watched.
+	 */
+	private void registerQuietly(Path dir) {
+		try {
+			register(dir);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void registerDirectory(Path dir) throws IOException {
+		dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_DELETE);
+	}
+
+	/**
+	 * stops watching; a callback already running is allowed to finish.
+	 */
+	public void close() throws IOException {
+		watchService.close();
+	}
+}
@@ -0,0 +1,116 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * DisjunctionIterator returns the documents any of its iterators returns (a OR b), each once and in order.<br>
+ * It is a k-way merge: the iterators sit in a binary min-heap keyed by their current document, so moving to the next
+ * document costs O(log k) per iterator positioned on the current one.
+ */
+public class DisjunctionIterator implements DocIterator {
+
+	private final DocIterator heap[];
+	private int size;
+	private int docId = -1;
+	private final long cost;
+
+	/**
+	 * @param iterators documents may come from any of these, positioned before their first document
+	 */
+	public DisjunctionIterator(DocIterator iterators[]) {
+		this.heap = iterators.clone();
+		this.size = heap.length;
+		long sum = 0;
+		for (DocIterator it : iterators) {
+			sum += it.cost();
+		}
+		this.cost = sum;
+	}
+
+	public int nextDoc() {
+		if (docId == -1) {
+			for (int i = 0; i < size; i++) {
+				heap[i].nextDoc();
+			}
+			heapify();
+		} else {
+			//move every iterator still on the current document
+			while (size > 0 && heap[0].docId() == docId) {
+				heap[0].nextDoc();
+				updateTop();
+			}
+		}
+		return docId = size == 0 ? NO_MORE_DOCS : heap[0].docId();
+	}
+
+	public int advance(int target) {
+		if (docId >= target) {
+			return docId;
+		}
+		if (docId == -1) {
+			for (int i = 0; i < size; i++) {
+				heap[i].advance(target);
+			}
+			heapify();
+		} else {
+			while (size > 0 && heap[0].docId() < target) {
+				heap[0].advance(target);
+				updateTop();
+			}
+		}
+		return docId = size == 0 ? NO_MORE_DOCS : heap[0].docId();
+	}
+
+	public int docId() {
+		return docId;
+	}
+
+	public long cost() {
+		return cost;
+	}
+
+	/*
+	 * drops exhausted iterators and restores the heap order.
+	 */
+	private void heapify() {
+		for (int i = 0; i < size; i++) {
+			if (heap[i].docId() == NO_MORE_DOCS) {
+				heap[i--] = heap[--size];
+			}
+		}
+		for (int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	/*
+	 * the top iterator moved: pops it if exhausted, otherwise sinks it to its place.
+	 */
+	private void updateTop() {
+		if (heap[0].docId() == NO_MORE_DOCS) {
+			heap[0] = heap[--size];
+			heap[size] = null;
+		}
+		if (size > 0) {
+			siftDown(0);
+		}
+	}
+
+	private void siftDown(int i) {
+		DocIterator it = heap[i];
+		int doc = it.docId();
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if (right < size && heap[right].docId() < heap[child].docId()) {
+				child = right;
+			}
+			if (heap[child].docId() >= doc) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = it;
+	}
+}
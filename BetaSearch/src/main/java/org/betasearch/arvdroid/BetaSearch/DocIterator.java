@@ -0,0 +1,36 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * DocIterator walks a set of document ids in increasing order: the postings of a term, or the documents matching a
+ * combination of terms such as a boolean query.
+ */
+public interface DocIterator {
+
+	/**
+	 * returned once the iterator is exhausted
+	 */
+	int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+	/**
+	 * @return the next document id, or NO_MORE_DOCS
+	 */
+	int nextDoc();
+
+	/**
+	 * moves to the first document whose id is at least target; does not move if the current one already is.
+	 * @param target document id
+	 * @return the new current document id, or NO_MORE_DOCS
+	 */
+	int advance(int target);
+
+	/**
+	 * @return current document id, -1 before the first nextDoc()
+	 */
+	int docId();
+
+	/**
+	 * @return estimate of the number of documents the iterator returns, used to pick the cheapest one to lead
+	 */
+	long cost();
+}
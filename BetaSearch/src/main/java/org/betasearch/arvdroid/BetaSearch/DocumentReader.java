@@ -0,0 +1,130 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * @author avijayvargiy <br>
+ * DocumentReader streams a document from a channel into an {@link Analyzer}: the bytes are read into a buffer,
+ * decoded in bulk with the document charset into a char buffer and the analyzer reads the decoded chars straight
+ * out of that buffer's array. No line, token or per document object is created and every buffer is reused from one
+ * document to the next. A document whose bytes were already read, as the {@link IndexingPipeline} does, is decoded
+ * straight out of them.<br>
+ * The byte buffer is a heap buffer on purpose: the JDK decoders only run their bulk loop over arrays, out of a
+ * direct buffer UTF-8 decodes about four times slower, far more than the copy the channel makes into the heap.<br>
+ * Malformed or unmappable bytes become U+FFFD, which is not a letter and is filtered out, as the old reader did; a
+ * byte order mark at the start is skipped.<br>
+ * Not thread safe, every indexing thread uses its own.
+ */
+final class DocumentReader {
+
+	/**
+	 * bytes read from the channel at a time
+	 */
+	static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+	private final CharsetDecoder decoder;
+	private final ByteBuffer bytes;
+	private final CharBuffer chars;
+	private boolean atStart; //nothing of the document decoded yet, a byte order mark may come
+
+	/**
+	 * @param charset charset of the documents
+	 */
+	DocumentReader(Charset charset) {
+		this(charset, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param charset charset of the documents
+	 * @param bufferSize bytes read from the channel at a time
+	 */
+	DocumentReader(Charset charset, int bufferSize) {
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.bytes = ByteBuffer.allocate(bufferSize);
+		//a byte never decodes to more chars than maxCharsPerByte, so one buffer of bytes fits in the chars
+		this.chars = CharBuffer.allocate((int) Math.ceil(bufferSize * decoder.maxCharsPerByte()));
+	}
+
+	/**
+	 * analyzes a whole document, ending with analyzer.end(consumer). The channel is read to its end, not closed.
+	 * @param channel document
+	 * @param analyzer analyzer to feed
+	 * @param consumer receives the terms
+	 * @throws IOException if reading fails
+	 */
+	void read(ReadableByteChannel channel, Analyzer analyzer, Analyzer.TermConsumer consumer) throws IOException {
+		decoder.reset();
+		bytes.clear();
+		chars.clear();
+		atStart = true;
+		boolean end = false;
+		while (!end) {
+			end = channel.read(bytes) < 0;
+			bytes.flip();
+			CoderResult result;
+			do {
+				result = decoder.decode(bytes, chars, end);
+				feed(analyzer, consumer);
+			} while (result.isOverflow());
+			bytes.compact(); //keeps the bytes of a character cut by the end of the buffer
+		}
+		end(analyzer, consumer);
+	}
+
+	/**
+	 * analyzes a whole document already read into memory, ending with analyzer.end(consumer). The bytes are decoded
+	 * straight out of content, which is read to its end.
+	 * @param content bytes of the document, best a heap buffer
+	 * @param analyzer analyzer to feed
+	 * @param consumer receives the terms
+	 */
+	void read(ByteBuffer content, Analyzer analyzer, Analyzer.TermConsumer consumer) {
+		decoder.reset();
+		chars.clear();
+		atStart = true;
+		CoderResult result;
+		do {
+			result = decoder.decode(content, chars, true);
+			feed(analyzer, consumer);
+		} while (result.isOverflow());
+		end(analyzer, consumer);
+	}
+
+	/*
+	 * flushes the decoder and the analyzer at the end of a document.
+	 */
+	private void end(Analyzer analyzer, Analyzer.TermConsumer consumer) {
+		CoderResult result;
+		do {
+			result = decoder.flush(chars);
+			feed(analyzer, consumer);
+		} while (result.isOverflow());
+		analyzer.end(consumer);
+	}
+
+	/*
+	 * hands the decoded chars to the analyzer and empties the char buffer.
+	 */
+	private void feed(Analyzer analyzer, Analyzer.TermConsumer consumer) {
+		chars.flip();
+		if (atStart && chars.hasRemaining()) {
+			atStart = false;
+			if (chars.get(chars.position()) == BYTE_ORDER_MARK) {
+				chars.get();
+			}
+		}
+		analyzer.feed(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining(), consumer);
+		chars.clear();
+	}
+}
@@ -0,0 +1,106 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+
+/**
+ * @author avijayvargiy <br>
+ * DocumentTable maps the integer document ids used in the posting lists back to the documents:
+ * the document name (file name without extension), the absolute path of the file and the length norm
+ * of the document vector, sqrt(sum over its terms of (1+log tf)^2), which is fixed once the document is indexed,
+ * and the length of the document in terms, which BM25 normalizes by.<br>
+ * The modification time and size of the file when it was indexed are kept too, so that changed files can be found.
+ */
+public class DocumentTable {
+
+	private String names[] = new String[16];
+	private String paths[] = new String[16];
+	private double norms[] = new double[16];
+	private int lengths[] = new int[16];
+	private long lastModified[] = new long[16];
+	private long fileSizes[] = new long[16];
+	private int size;
+
+	/**
+	 * @param name document name
+	 * @param path absolute path of the document
+	 * @return id given to the document, ids are handed out as 0, 1, 2, ...
+	 */
+	public int add(String name, String path) {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			paths = Arrays.copyOf(paths, size * 2);
+			norms = Arrays.copyOf(norms, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+			lastModified = Arrays.copyOf(lastModified, size * 2);
+			fileSizes = Arrays.copyOf(fileSizes, size * 2);
+		}
+		names[size] = name;
+		paths[size] = path;
+		return size++;
+	}
+
+	public String name(int docId) {
+		return names[docId];
+	}
+
+	public String path(int docId) {
+		return paths[docId];
+	}
+
+	/**
+	 * @param docId document id
+	 * @return euclidean length of the (1+log tf) weighted document vector
+	 */
+	public double norm(int docId) {
+		return norms[docId];
+	}
+
+	public void setNorm(int docId, double norm) {
+		norms[docId] = norm;
+	}
+
+	/**
+	 * @param docId document id
+	 * @return number of terms in the document, repeated ones counted every time
+	 */
+	public int length(int docId) {
+		return lengths[docId];
+	}
+
+	public void setLength(int docId, int length) {
+		lengths[docId] = length;
+	}
+
+	/**
+	 * @param docId document id
+	 * @return modification time of the file when it was indexed, in milliseconds since the epoch
+	 */
+	public long lastModified(int docId) {
+		return lastModified[docId];
+	}
+
+	/**
+	 * @param docId document id
+	 * @return size in bytes of the file when it was indexed
+	 */
+	public long fileSize(int docId) {
+		return fileSizes[docId];
+	}
+
+	/**
+	 * @param docId document id
+	 * @param modified modification time of the file in milliseconds since the epoch
+	 * @param size size of the file in bytes
+	 */
+	public void setFileState(int docId, long modified, long size) {
+		lastModified[docId] = modified;
+		fileSizes[docId] = size;
+	}
+
+	/**
+	 * @return number of documents
+	 */
+	public int size() {
+		return size;
+	}
+}
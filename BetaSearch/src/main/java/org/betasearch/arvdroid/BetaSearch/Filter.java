@@ -1,23 +1,164 @@
 package org.betasearch.arvdroid.BetaSearch;
 
 import java.io.File;
-import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 
 /**
  * @author avijayvargiy
- * Class Filter helps in keeping track of various documents present in a directory. It is basically a file picker.
+ * Class Filter helps in keeping track of various documents present in a directory. It is basically a file picker.<br>
+ * It walks the directory tree, sub directories included unless switched off, and picks the files matching one of
+ * the include globs and none of the exclude globs; by default every *.txt file. A glob without a '/' is matched
+ * against the file name, for example "*.txt", one with a '/' against the path relative to the directory, for
+ * example "archive/**". An excluded directory is not walked into at all.<br>
+ * {@link #walk(String, DocumentConsumer)} hands every document over as soon as it is found, so indexing a large
+ * tree can start before the walk is over; {@link #finder(String)} collects them all first.
+ * A directory that cannot be read is reported and skipped, the rest of the tree is still walked.
  */
 public class Filter {
 
-	public File[] finder( String dirName) //It helps in picking all files of .txt extention in adirectory dirName.
-	{
-		File dir = new File(dirName);
+	/**
+	 * receives the documents a walk finds, in the order the walk finds them.
+	 */
+	public interface DocumentConsumer {
+		/**
+		 * @param document file that matched the filter
+		 * @param attributes size and modification time of the file as the walk saw it
+		 */
+		void accept(File document, BasicFileAttributes attributes);
+	}
+
+	private final List < PathMatcher > includes;
+	private final List < Boolean > includeByName; //per include glob: matched against the file name rather than the path
+	private final List < PathMatcher > excludes;
+	private final List < Boolean > excludeByName;
+	private boolean recursive = true;
+
+	/**
+	 * picks every *.txt file of the tree.
+	 */
+	public Filter() {
+		this(Collections.singletonList("*.txt"), Collections.<String>emptyList());
+	}
+
+	/**
+	 * @param includes globs a document has to match one of
+	 * @param excludes globs of documents and directories to leave out
+	 * @throws IllegalArgumentException if a glob is malformed
+	 */
+	public Filter(List < String > includes, List < String > excludes) {
+		this.includes = new ArrayList < PathMatcher > ();
+		this.includeByName = new ArrayList < Boolean > ();
+		this.excludes = new ArrayList < PathMatcher > ();
+		this.excludeByName = new ArrayList < Boolean > ();
+		for (String glob : includes) {
+			this.includes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+			this.includeByName.add(glob.indexOf('/') < 0);
+		}
+		for (String glob : excludes) {
+			this.excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+			this.excludeByName.add(glob.indexOf('/') < 0);
+		}
+	}
+
+	/**
+	 * @param includes globs a document has to match one of, for example "*.txt", "*.md"
+	 * @return a filter with these include globs and no exclude glob
+	 */
+	public static Filter including(String... includes) {
+		return new Filter(Arrays.asList(includes), Collections.<String>emptyList());
+	}
 
-		return dir.listFiles(new FilenameFilter() { 
-			public boolean accept(File dir, String filename)
-			{ return filename.endsWith(".txt"); }
-		} );
+	public boolean isRecursive() {
+		return recursive;
+	}
+
+	/**
+	 * @param recursive whether to walk into sub directories, the default, or only pick files of the directory itself
+	 */
+	public void setRecursive(boolean recursive) {
+		this.recursive = recursive;
+	}
+
+	/**
+	 * walks the directory and hands every matching file to the consumer as soon as it is found.
+	 * @param dirName directory to walk
+	 * @param consumer receives the documents, on the calling thread
+	 * @throws IOException if dirName is not a readable directory
+	 */
+	public void walk(String dirName, final DocumentConsumer consumer) throws IOException {
+		final Path root = Paths.get(dirName).toAbsolutePath();
+		if (!Files.isDirectory(root)) {
+			throw new NotDirectoryException(root.toString());
+		}
+		Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), recursive ? Integer.MAX_VALUE : 1,
+				new SimpleFileVisitor < Path > () {
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				return dir.equals(root) || !matches(excludes, excludeByName, root, dir) ? FileVisitResult.CONTINUE
+						: FileVisitResult.SKIP_SUBTREE;
+			}
 
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() && matches(includes, includeByName, root, file)
+						&& !matches(excludes, excludeByName, root, file)) {
+					consumer.accept(file.toFile(), attrs);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+				if (file.equals(root)) {
+					throw e;
+				}
+				e.printStackTrace(); //an unreadable directory or a link loop, the rest of the tree is still indexed
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * @param dirName directory to walk
+	 * @return every matching file, in the order the walk finds them
+	 * @throws IllegalArgumentException if dirName is not a readable directory
+	 */
+	public File[] finder(String dirName) {
+		final List < File > files = new ArrayList < File > ();
+		try {
+			walk(dirName, new DocumentConsumer() {
+				public void accept(File document, BasicFileAttributes attributes) {
+					files.add(document);
+				}
+			});
+		} catch (IOException e) {
+			throw new IllegalArgumentException("cannot read the document directory " + dirName, e);
+		}
+		return files.toArray(new File[files.size()]);
 	}
 
+	/*
+	 * whether one of the globs matches the file, by name or by path relative to the root.
+	 */
+	private static boolean matches(List < PathMatcher > globs, List < Boolean > byName, Path root, Path file) {
+		for (int i = 0; i < globs.size(); i++) {
+			Path matched = byName.get(i) ? file.getFileName() : root.relativize(file);
+			if (globs.get(i).matches(matched)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,318 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @author avijayvargiy <br>
+ * FrontCodedTerms is the term dictionary of an {@link IndexSnapshot}: the terms in alphabetical (String.compareTo)
+ * order, front coded in blocks of {@value #BLOCK_SIZE} and kept off the heap in a direct ByteBuffer.<br>
+ * The first term of a block is stored whole as its UTF-8 length and bytes, every other term as the number of
+ * leading bytes it shares with the term before it, the number of bytes that follow and those bytes, the numbers
+ * {@link VByte} encoded. A second direct buffer holds where every block starts.<br>
+ * The term id is the position of the term in that order, which is where a snapshot keeps its posting list. Looking
+ * a term up binary searches the first terms of the blocks and scans a single block; iterating walks the terms in
+ * order decoding each once. Neither the terms nor a hash table over them live on the heap, so millions of terms
+ * cost the garbage collector nothing to scan. Each buffer can be at most 2GB.<br>
+ * Instances are immutable and can be read by any number of threads.
+ */
+public final class FrontCodedTerms implements Iterable < String > {
+
+	/**
+	 * terms per block, the most a lookup decodes
+	 */
+	public static final int BLOCK_SIZE = 16;
+
+	private final int size;
+	private final ByteBuffer bytes;
+	private final IntBuffer blocks; //block -> position of its first term in bytes
+
+	private FrontCodedTerms(int size, byte bytes[], int length, int blocks[], int numBlocks) {
+		this.size = size;
+		this.bytes = ByteBuffer.allocateDirect(length);
+		this.bytes.put(bytes, 0, length);
+		this.blocks = ByteBuffer.allocateDirect(4 * numBlocks).asIntBuffer();
+		this.blocks.put(blocks, 0, numBlocks);
+	}
+
+	/**
+	 * @return number of terms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param term term to look up
+	 * @return id of the term, or -1 if it is not in the dictionary
+	 */
+	public int termId(String term) {
+		//the last block whose first term is not after the term
+		int low = 0;
+		int high = blocks.capacity() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int position = blocks.get(mid);
+			int length = vbyte(position);
+			position += VByte.length(length);
+			int cmp = compare(bytes, position, position + length, term);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid * BLOCK_SIZE;
+			}
+		}
+		if (high < 0) {
+			return -1;
+		}
+		//the rest of the block only needs comparing for equality, which the UTF-8 bytes tell. matched is how many
+		//leading bytes the term just decoded shares with the one looked for; a term sharing more of its predecessor
+		//than that cannot be it
+		byte wanted[] = term.getBytes(StandardCharsets.UTF_8);
+		int position = blocks.get(high);
+		int length = vbyte(position);
+		position += VByte.length(length);
+		int matched = common(position, length, wanted, 0);
+		position += length;
+		int end = Math.min(size, (high + 1) * BLOCK_SIZE);
+		for (int id = high * BLOCK_SIZE + 1; id < end; id++) {
+			int prefix = vbyte(position);
+			position += VByte.length(prefix);
+			int suffix = vbyte(position);
+			position += VByte.length(suffix);
+			if (prefix <= matched) {
+				matched = prefix + common(position, suffix, wanted, prefix);
+				if (matched == wanted.length && prefix + suffix == wanted.length) {
+					return id;
+				}
+			}
+			position += suffix;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param termId term id
+	 * @return the term, decoded from the start of its block
+	 * @throws IndexOutOfBoundsException if there is no such term
+	 */
+	public String term(int termId) {
+		if (termId < 0 || termId >= size) {
+			throw new IndexOutOfBoundsException("term id " + termId + " of " + size);
+		}
+		Cursor cursor = new Cursor(termId - termId % BLOCK_SIZE);
+		while (cursor.id < termId) {
+			cursor.decode();
+		}
+		return cursor.next();
+	}
+
+	/**
+	 * @return the terms in term id order, which is alphabetical order
+	 */
+	public Iterator < String > iterator() {
+		return new Cursor(0);
+	}
+
+	/**
+	 * compares the UTF-8 term in bytes[from, to) with a word in String.compareTo (UTF-16) order without decoding
+	 * it into a String.
+	 * @return negative, zero or positive as the bytes sort before, equal to or after the word
+	 */
+	static int compare(ByteBuffer bytes, int from, int to, String term) {
+		int pos = from;
+		int i = 0;
+		int length = term.length();
+		char pending = 0; //low surrogate still to compare after a supplementary character
+		while (pos < to || pending != 0) {
+			char c;
+			if (pending != 0) {
+				c = pending;
+				pending = 0;
+			} else {
+				int b = bytes.get(pos++) & 0xff;
+				int cp;
+				if (b < 0x80) {
+					cp = b;
+				} else if (b < 0xe0) {
+					cp = ((b & 0x1f) << 6) | (bytes.get(pos++) & 0x3f);
+				} else if (b < 0xf0) {
+					cp = ((b & 0x0f) << 12) | ((bytes.get(pos++) & 0x3f) << 6) | (bytes.get(pos++) & 0x3f);
+				} else {
+					cp = ((b & 0x07) << 18) | ((bytes.get(pos++) & 0x3f) << 12) | ((bytes.get(pos++) & 0x3f) << 6) | (bytes.get(pos++) & 0x3f);
+				}
+				if (cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+					c = Character.highSurrogate(cp);
+					pending = Character.lowSurrogate(cp);
+				} else {
+					c = (char) cp;
+				}
+			}
+			if (i == length) {
+				return 1;
+			}
+			char other = term.charAt(i++);
+			if (c != other) {
+				return c - other;
+			}
+		}
+		return i == length ? 0 : -1;
+	}
+
+	/*
+	 * the VByte number starting at position.
+	 */
+	private int vbyte(int position) {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = bytes.get(position++);
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	/*
+	 * how many of the length bytes at position match wanted from offset on.
+	 */
+	private int common(int position, int length, byte wanted[], int offset) {
+		int n = Math.min(length, wanted.length - offset);
+		int i = 0;
+		while (i < n && bytes.get(position + i) == wanted[offset + i]) {
+			i++;
+		}
+		return i;
+	}
+
+	/*
+	 * decodes the terms one after the other from the start of a block, rebuilding each term's bytes on top of the
+	 * previous term's.
+	 */
+	private final class Cursor implements Iterator < String > {
+		private final ByteBuffer in = bytes.duplicate(); //its own position for bulk gets
+		private int id; //id of the next term
+		private byte term[] = new byte[32];
+		private int length;
+
+		Cursor(int id) {
+			this.id = id;
+			if (id < size) {
+				in.position(blocks.get(id / BLOCK_SIZE));
+			}
+		}
+
+		public boolean hasNext() {
+			return id < size;
+		}
+
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			decode();
+			return new String(term, 0, length, StandardCharsets.UTF_8);
+		}
+
+		void decode() {
+			int prefix = id % BLOCK_SIZE == 0 ? 0 : read();
+			int suffix = read();
+			if (term.length < prefix + suffix) {
+				term = Arrays.copyOf(term, Math.max(2 * term.length, prefix + suffix));
+			}
+			in.get(term, prefix, suffix);
+			length = prefix + suffix;
+			id++;
+		}
+
+		private int read() {
+			int value = 0;
+			for (int shift = 0;; shift += 7) {
+				int b = in.get();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		}
+	}
+
+	/**
+	 * collects terms in alphabetical order into a {@link FrontCodedTerms}. The encoded terms grow on the heap until
+	 * {@link #build()} copies them off it.
+	 */
+	public static final class Builder {
+		private byte bytes[] = new byte[1024];
+		private int length;
+		private int blocks[] = new int[16];
+		private int size;
+		private String last;
+		private byte previous[];
+
+		/**
+		 * @param term the next term, which must sort after the one added before
+		 * @return this builder
+		 * @throws IllegalArgumentException if the term does not sort after the previous one
+		 * @throws IllegalStateException if the terms take more than 2GB
+		 */
+		public Builder add(String term) {
+			if (last != null && last.compareTo(term) >= 0) {
+				throw new IllegalArgumentException("terms must be added in ascending order: " + last + ", " + term);
+			}
+			byte utf8[] = term.getBytes(StandardCharsets.UTF_8);
+			int prefix = 0;
+			if (size % BLOCK_SIZE == 0) {
+				if (size / BLOCK_SIZE == blocks.length) {
+					blocks = Arrays.copyOf(blocks, 2 * blocks.length);
+				}
+				blocks[size / BLOCK_SIZE] = length;
+			} else {
+				int n = Math.min(previous.length, utf8.length);
+				while (prefix < n && previous[prefix] == utf8[prefix]) {
+					prefix++;
+				}
+			}
+			int suffix = utf8.length - prefix;
+			long needed = (long) length + 2 * VByte.MAX_BYTES + suffix;
+			if (needed > Integer.MAX_VALUE - 8) {
+				throw new IllegalStateException("term dictionary larger than 2GB");
+			}
+			if (needed > bytes.length) {
+				bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * bytes.length)));
+			}
+			if (size % BLOCK_SIZE != 0) {
+				length = VByte.write(bytes, length, prefix);
+			}
+			length = VByte.write(bytes, length, suffix);
+			System.arraycopy(utf8, prefix, bytes, length, suffix);
+			length += suffix;
+			previous = utf8;
+			last = term;
+			size++;
+			return this;
+		}
+
+		/**
+		 * @return number of terms added so far
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @return the dictionary of the terms added, the builder must not be used afterwards
+		 */
+		public FrontCodedTerms build() {
+			FrontCodedTerms terms = new FrontCodedTerms(size, bytes, length, blocks, (size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+			bytes = null;
+			blocks = null;
+			return terms;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * @author avijayvargiy <br>
+ * IncrementalIndexer brings a segmented index up to date with the documents currently in the directory without
+ * re-reading the documents that did not change.<br>
+ * A document is considered changed when the modification time or the size of its file differs from what was
+ * recorded when it was indexed. New and changed files are tokenized into one new small segment; the old versions
+ * of changed files and the documents of deleted files are only marked deleted in the segments holding them, so
+ * the cost of an update is the size of the changed files. The old version of a changed file is marked deleted only
+ * once its new version has been read; a file that cannot be read keeps its old version and is counted as failed. Reclaiming the deleted documents is left to the
+ * {@link MergeScheduler}.<br>
+ * The previous segments are not modified; they keep serving queries until the new ones are published.
+ */
+public class IncrementalIndexer {
+
+	private final boolean positions;
+	private int added;
+	private int updated;
+	private int deleted;
+	private int failed;
+
+	public IncrementalIndexer() {
+		this(false);
+	}
+
+	/**
+	 * @param positions whether the new segments record the positions of the terms
+	 */
+	public IncrementalIndexer(boolean positions) {
+		this.positions = positions;
+	}
+
+	/**
+	 * @param current segments to update
+	 * @param files the documents that make up the collection now
+	 * @param segmentName name for the segment holding the new and changed documents
+	 * @return the updated segments, or current itself if no document was added, changed or deleted
+	 */
+	public SegmentedIndex update(SegmentedIndex current, File files[], String segmentName) {
+		added = 0;
+		updated = 0;
+		deleted = 0;
+		failed = 0;
+		HashMap < String, Integer > known = new HashMap < String, Integer > (current.numDocs() * 2);
+		for (int s = 0; s < current.segmentCount(); s++) {
+			Segment segment = current.segment(s);
+			for (int doc = 0; doc < segment.maxDoc(); doc++) {
+				if (!segment.isDeleted(doc)) {
+					known.put(segment.getIndex().documentPath(doc), current.base(s) + doc);
+				}
+			}
+		}
+		BitSet removed = new BitSet(current.maxDoc()); //global document ids
+		BitSet seen = new BitSet(current.maxDoc());
+		List < File > changed = new ArrayList < File > ();
+		List < Integer > replaced = new ArrayList < Integer > (); //old global id of each changed file, null if new
+		for (File file : files) {
+			Integer doc = known.get(file.getAbsolutePath());
+			if (doc == null) {
+				changed.add(file);
+				replaced.add(null);
+				continue;
+			}
+			seen.set(doc);
+			int s = current.segmentOf(doc);
+			InvertedIndex index = current.segment(s).getIndex();
+			int local = doc - current.base(s);
+			if (file.lastModified() != index.documentLastModified(local) || file.length() != index.documentFileSize(local)) {
+				changed.add(file);
+				replaced.add(doc);
+			}
+		}
+		for (Integer doc : known.values()) {
+			if (!seen.get(doc)) {
+				removed.set(doc);
+				deleted++;
+			}
+		}
+		IndexBuilder delta = new IndexBuilder(positions);
+		BitSet partial = new BitSet(); //documents of the new segment whose file failed half way through
+		int indexed = 0;
+		for (int i = 0; i < changed.size(); i++) {
+			int before = delta.numDocs();
+			try {
+				delta.addDocument(changed.get(i));
+			} catch (IOException e) {
+				e.printStackTrace();
+				partial.set(before, delta.numDocs());
+				failed++;
+				continue;
+			}
+			indexed++;
+			Integer doc = replaced.get(i);
+			if (doc == null) {
+				added++;
+			} else {
+				removed.set(doc);
+				updated++;
+			}
+		}
+		if (indexed == 0 && removed.isEmpty()) {
+			return current;
+		}
+		Segment segments[] = new Segment[current.segmentCount()];
+		for (int s = 0; s < segments.length; s++) {
+			int base = current.base(s);
+			BitSet local = removed.get(base, base + current.segment(s).maxDoc());
+			segments[s] = local.isEmpty() ? current.segment(s) : current.segment(s).withDeletions(local);
+		}
+		SegmentedIndex result = new SegmentedIndex(segments);
+		if (indexed > 0) {
+			Segment segment = new Segment(segmentName, delta.build());
+			result = result.withSegment(partial.isEmpty() ? segment : segment.withDeletions(partial));
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of new documents found by the last update
+	 */
+	public int getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return number of documents re-indexed by the last update because their file changed
+	 */
+	public int getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * @return number of documents removed by the last update because their file is gone
+	 */
+	public int getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * @return number of new or changed documents the last update could not read, a changed one keeps its old version
+	 */
+	public int getFailed() {
+		return failed;
+	}
+}
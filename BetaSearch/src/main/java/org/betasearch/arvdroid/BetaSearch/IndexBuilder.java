@@ -0,0 +1,198 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * @author avijayvargiy <br>
+ * IndexBuilder accumulates documents into a dictionary and posting lists and then freezes them into an
+ * immutable {@link IndexSnapshot}. A builder is not thread safe and is used by one indexing thread at a time.<br>
+ * CONSTRUCTION OF DICTIONARY<br>
+ *  1)streaming the document, decoded as UTF-8, through a {@link DocumentReader}<br>
+ *  2)turning the text into words with the {@link Analyzer} (tokenization, stemming, filtering for letters)<br>
+ *  3)putting into words dictionary and maintaining dictionary.<br>
+ *  4)If word is already present than maintain its data structure of list of postings.<br>
+ * Optionally the position of every occurrence is recorded too, counted in terms from the start of the document,
+ * for phrase and proximity queries.
+ */
+public class IndexBuilder {
+
+	//rough heap cost of what is added, which tells when to spill a run to disk: a new term costs its String, entry,
+	//posting list and dictionary slot, a posting two encoded bytes plus the slack of its growing array
+	private static final int TERM_BYTES = 200;
+	private static final int POSTING_BYTES = 3;
+	private static final int POSITION_BYTES = 2;
+	private static final int DOCUMENT_BYTES = 100;
+
+	private final TermDictionary dictionary = new TermDictionary(); //maps every word to its position in entries
+	private final ArrayList < Dictionary > entries = new ArrayList < Dictionary > (); //indexed by term id
+	private final DocumentTable documents = new DocumentTable(); //document ids -> names, paths and norms
+	private int docTerms[] = new int[256]; //ids of the distinct words of the document being added
+	private int touched; //number of distinct words of the document being added, their ids are in docTerms
+	private int currentDoc; //id of the document being added
+	private int currentPosition; //position the next term of the document being added gets, i.e. its length so far
+	private final boolean positions;
+	private long estimatedBytes;
+	private final Analyzer analyzer = new Analyzer();
+	private final DocumentReader reader = new DocumentReader(StandardCharsets.UTF_8); //buffers reused for every document
+	private char term[] = new char[64]; //a term analyzed beforehand while it is added
+	private final Analyzer.TermConsumer indexer = new Analyzer.TermConsumer() {
+		public void accept(char term[], int length) {
+			addTerm(term, length);
+		}
+	};
+
+	public IndexBuilder() {
+		this(false);
+	}
+
+	/**
+	 * @param positions whether to record the positions of the terms
+	 */
+	public IndexBuilder(boolean positions) {
+		this.positions = positions;
+	}
+
+	/**
+	 * tokenizes one document and adds its words to the posting lists.
+	 * @param file UTF-8 text document
+	 * @return id given to the document
+	 * @throws IOException if the document cannot be read
+	 */
+	public int addDocument(File file) throws IOException {
+		long modified = file.lastModified(); //taken before reading, a write during indexing is picked up next time
+		long size = file.length();
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ); //opened first so an unreadable file gets no id
+		try {
+			startDocument(file, modified, size);
+			reader.read(channel, analyzer, indexer);
+		} finally {
+			channel.close();
+		}
+		return endDocument();
+	}
+
+	/**
+	 * adds a document whose terms were analyzed beforehand, as the {@link IndexingPipeline} does on other threads.
+	 * The terms of the document are terms[from] to terms[to - 1], term i being the chars of text from ends[i - 1],
+	 * or 0 for the very first one, up to ends[i].
+	 * @param file document, for its name and path
+	 * @param modified modification time of the file when it was read
+	 * @param size size of the file when it was read
+	 * @param text chars of the analyzed terms, one after the other
+	 * @param ends end of every term in text
+	 * @param from first term of the document
+	 * @param to end of the terms of the document
+	 * @return id given to the document
+	 */
+	int addDocument(File file, long modified, long size, char text[], int ends[], int from, int to) {
+		startDocument(file, modified, size);
+		int start = from == 0 ? 0 : ends[from - 1];
+		for (int i = from; i < to; i++) {
+			int length = ends[i] - start;
+			if (length > term.length) {
+				term = new char[Math.max(length, term.length * 2)];
+			}
+			System.arraycopy(text, start, term, 0, length); //the dictionary reads terms from the start of a buffer
+			addTerm(term, length);
+			start = ends[i];
+		}
+		return endDocument();
+	}
+
+	/*
+	 * gives the next document id to the document about to be analyzed.
+	 */
+	private void startDocument(File file, long modified, long size) {
+		String name = file.getName();
+		int posh = name.lastIndexOf(".");
+		if (posh > 0) {
+			name = name.substring(0, posh);
+		}
+		String path = file.getAbsolutePath();
+		currentDoc = documents.add(name, path);
+		estimatedBytes += DOCUMENT_BYTES + 2 * (name.length() + path.length());
+		documents.setFileState(currentDoc, modified, size);
+		touched = 0;
+		currentPosition = 0;
+	}
+
+	/*
+	 * the document is complete, so its length norm can be fixed now: sqrt(sum of (1+log tf)^2)
+	 */
+	private int endDocument() {
+		double norm = 0.0;
+		for (int t = 0; t < touched; t++) {
+			double d = 1 + Math.log(entries.get(docTerms[t]).list.lastTermFrequency());
+			norm = norm + d * d;
+		}
+		documents.setNorm(currentDoc, Math.sqrt(norm));
+		documents.setLength(currentDoc, currentPosition);
+		return currentDoc;
+	}
+
+	/*
+	 * puts one analyzed word of the current document into the dictionary and its posting list.
+	 */
+	private void addTerm(char term[], int length) {
+		int id = dictionary.add(term, length);
+		if (id == entries.size()) {
+			Dictionary d = new Dictionary();
+			d.term = dictionary.term(id);
+			d.list = new PostingList(positions);
+			entries.add(d);
+			estimatedBytes += TERM_BYTES + 2 * length;
+		}
+		//documents are indexed one after the other, so only the last posting can belong to the current one
+		Dictionary dtemp = entries.get(id);
+		boolean first = positions ? dtemp.list.addOccurrence(currentDoc, currentPosition) : dtemp.list.addOccurrence(currentDoc);
+		currentPosition++;
+		if (positions) {
+			estimatedBytes += POSITION_BYTES;
+		}
+		if (first) {
+			estimatedBytes += POSTING_BYTES;
+			if (touched == docTerms.length) {
+				docTerms = Arrays.copyOf(docTerms, touched * 2);
+			}
+			docTerms[touched++] = id;
+		}
+		dtemp.documentFrequency = dtemp.list.size();
+	}
+
+	/**
+	 * @return number of documents added so far
+	 */
+	public int numDocs() {
+		return documents.size();
+	}
+
+	/**
+	 * @return roughly how many bytes of heap what has been added takes
+	 */
+	long estimatedBytes() {
+		return estimatedBytes;
+	}
+
+	/**
+	 * freezes what has been added into a snapshot. The builder must not be used afterwards.
+	 * @return immutable index whose term ids follow the alphabetical order of the words
+	 */
+	public IndexSnapshot build() {
+		//sorting the dictionary alphabetically, done once now that every word is known
+		int sorted[] = dictionary.sortedIds();
+		Dictionary words[] = new Dictionary[sorted.length];
+		FrontCodedTerms.Builder sortedDictionary = new FrontCodedTerms.Builder();
+		for (int i = 0; i < sorted.length; i++) {
+			words[i] = entries.get(sorted[i]);
+			words[i].list.trim();
+			sortedDictionary.add(words[i].term);
+		}
+		return new IndexSnapshot(sortedDictionary.build(), words, documents, positions);
+	}
+}
@@ -0,0 +1,98 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * Constants of the binary index file written by {@link IndexWriter} and read by {@link IndexLoader}.<br>
+ * All numbers are big endian. The file starts with a fixed size header followed by the sections it points to:
+ * <pre>
+ * header       magic, version, numDocs, numTerms (ints), numPostings (long), totalLength (long, the sum of the
+ *              document lengths),
+ *              then the absolute file position of every section below (longs, in this order)
+ * norms        numDocs doubles, the document length norms
+ * docOffsets   2*numDocs+1 ints; document d has its name in docBytes[docOffsets[2d], docOffsets[2d+1])
+ *              and its path in docBytes[docOffsets[2d+1], docOffsets[2d+2])
+ * docBytes     UTF-8 names and paths
+ * docFiles     numDocs pairs of longs, modification time and size of each document's file
+ * termOffsets  numTerms+1 ints; term t is termBytes[termOffsets[t], termOffsets[t+1])
+ * termBytes    UTF-8 terms in alphabetical (String.compareTo) order, so term t has term id t
+ * postingStarts numTerms+1 longs; the postings of term t are postings[postingStarts[t], postingStarts[t+1])
+ * docFreqs     numTerms ints, the number of postings of each term
+ * postings     the posting lists of all terms one after the other, each as for every document the gap to the
+ *              previous document id (the first id itself) and the term frequency, both {@link VByte} encoded
+ * skips        skip data of every term with more than {@link PostingList#BLOCK_SIZE} postings, in term order:
+ *              one entry per block of BLOCK_SIZE postings holding the last document id (int), the end of the block
+ *              relative to the start of the term's postings (int), the highest term frequency (int) and the
+ *              highest impact (1+log tf)/norm(d) (double), then the end of the block's positions relative to the
+ *              start of the term's positions (int, 0 in an index without positions)
+ * positionStarts numTerms+1 longs like postingStarts but into positions; empty in an index without positions
+ * positions    the positions of all terms one after the other: for every posting, the positions of its occurrences
+ *              as gaps to the previous one (the first position itself), {@link VByte} encoded
+ * docLengths   numDocs ints, the number of terms in each document
+ * skipStarts   numTerms+1 ints; the skips entries of term t are entries skipStarts[t] to skipStarts[t+1] - 1
+ * </pre>
+ */
+public final class IndexFormat {
+
+	/**
+	 * "BSIX"
+	 */
+	public static final int MAGIC = 0x42534958;
+
+	/**
+	 * bumped whenever the layout or the way terms are analyzed changes, files of another version are rejected.
+	 * 2: terms no longer carry trailing '\0' padding and tokens without letters are not indexed
+	 * 3: docFiles section
+	 * 4: postings VByte encoded, docIds and termFreqs replaced by docFreqs and postings
+	 * 5: skips section
+	 * 6: positionStarts and positions sections, skips entries end with the end of the block's positions
+	 * 7: docLengths section and totalLength, the impact in skips entries is the cosine weight (1+log tf)/norm(d)
+	 * 8: skipStarts section
+	 */
+	public static final int VERSION = 8;
+
+	/**
+	 * number of section positions stored in the header
+	 */
+	static final int SECTIONS = 14;
+
+	static final int NORMS = 0;
+	static final int DOC_OFFSETS = 1;
+	static final int DOC_BYTES = 2;
+	static final int DOC_FILES = 3;
+	static final int TERM_OFFSETS = 4;
+	static final int TERM_BYTES = 5;
+	static final int POSTING_STARTS = 6;
+	static final int DOC_FREQS = 7;
+	static final int POSTINGS = 8;
+	static final int SKIPS = 9;
+	static final int POSITION_STARTS = 10;
+	static final int POSITIONS = 11;
+	static final int DOC_LENGTHS = 12;
+	static final int SKIP_STARTS = 13;
+
+	/**
+	 * size in bytes of one skips entry
+	 */
+	static final int SKIP_ENTRY_SIZE = 4 + 4 + 4 + 8 + 4;
+
+	/**
+	 * @param documentFrequency number of postings of a term
+	 * @return number of skips entries of the term
+	 */
+	static int blocks(int documentFrequency) {
+		return documentFrequency <= PostingList.BLOCK_SIZE ? 0 : (documentFrequency + PostingList.BLOCK_SIZE - 1) / PostingList.BLOCK_SIZE;
+	}
+
+	/**
+	 * size in bytes of the header
+	 */
+	static final int HEADER_SIZE = 4 * 4 + 8 + 8 + 8 * SECTIONS;
+
+	/**
+	 * file position of the first section position in the header
+	 */
+	static final int SECTIONS_OFFSET = 4 * 4 + 8 + 8;
+
+	private IndexFormat() {
+	}
+}
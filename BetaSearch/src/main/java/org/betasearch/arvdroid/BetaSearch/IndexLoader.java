@@ -0,0 +1,128 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author avijayvargiy <br>
+ * IndexLoader reads an index file written by {@link IndexWriter} back into an in memory {@link IndexSnapshot}.<br>
+ * Every section is copied with bulk buffer reads, no tokenizing or stemming happens, so loading is bound by
+ * the speed of reading the file.
+ */
+public class IndexLoader {
+
+	/**
+	 * @param file index file
+	 * @return the snapshot stored in the file
+	 * @throws IOException if the file cannot be read or is not an index of the current version
+	 */
+	public IndexSnapshot load(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("index file larger than 2GB: " + file);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new IOException("unexpected end of index file: " + file);
+				}
+			}
+			buffer.flip();
+			return read(buffer, file);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private IndexSnapshot read(ByteBuffer buffer, File file) throws IOException {
+		if (buffer.remaining() < IndexFormat.HEADER_SIZE || buffer.getInt(0) != IndexFormat.MAGIC) {
+			throw new IOException("not an index file: " + file);
+		}
+		int version = buffer.getInt(4);
+		if (version != IndexFormat.VERSION) {
+			throw new IOException("unsupported index version " + version + " (expected " + IndexFormat.VERSION + "): " + file);
+		}
+		int numDocs = buffer.getInt(8);
+		int numTerms = buffer.getInt(12);
+		long sections[] = new long[IndexFormat.SECTIONS];
+		for (int i = 0; i < sections.length; i++) {
+			sections[i] = buffer.getLong(IndexFormat.SECTIONS_OFFSET + 8 * i);
+		}
+
+		DocumentTable documents = new DocumentTable();
+		double norms[] = new double[numDocs];
+		section(buffer, sections, IndexFormat.NORMS).asDoubleBuffer().get(norms);
+		int lengths[] = new int[numDocs];
+		section(buffer, sections, IndexFormat.DOC_LENGTHS).asIntBuffer().get(lengths);
+		int docOffsets[] = new int[2 * numDocs + 1];
+		section(buffer, sections, IndexFormat.DOC_OFFSETS).asIntBuffer().get(docOffsets);
+		long docFiles[] = new long[2 * numDocs];
+		section(buffer, sections, IndexFormat.DOC_FILES).asLongBuffer().get(docFiles);
+		int docBytes = (int) sections[IndexFormat.DOC_BYTES];
+		for (int d = 0; d < numDocs; d++) {
+			String name = string(buffer, docBytes + docOffsets[2 * d], docOffsets[2 * d + 1] - docOffsets[2 * d]);
+			String path = string(buffer, docBytes + docOffsets[2 * d + 1], docOffsets[2 * d + 2] - docOffsets[2 * d + 1]);
+			int id = documents.add(name, path);
+			documents.setNorm(id, norms[d]);
+			documents.setLength(id, lengths[d]);
+			documents.setFileState(id, docFiles[2 * d], docFiles[2 * d + 1]);
+		}
+
+		int termOffsets[] = new int[numTerms + 1];
+		section(buffer, sections, IndexFormat.TERM_OFFSETS).asIntBuffer().get(termOffsets);
+		long starts[] = new long[numTerms + 1];
+		section(buffer, sections, IndexFormat.POSTING_STARTS).asLongBuffer().get(starts);
+		int docFreqs[] = new int[numTerms];
+		section(buffer, sections, IndexFormat.DOC_FREQS).asIntBuffer().get(docFreqs);
+		//all posting lists share one array, each list wraps its own range of it
+		byte postings[] = new byte[(int) starts[numTerms]];
+		section(buffer, sections, IndexFormat.POSTINGS).get(postings);
+		//positions likewise, an index without positions has no position starts
+		long positionStarts[] = new long[(int) ((sections[IndexFormat.POSITIONS] - sections[IndexFormat.POSITION_STARTS]) / 8)];
+		section(buffer, sections, IndexFormat.POSITION_STARTS).asLongBuffer().get(positionStarts);
+		boolean hasPositions = positionStarts.length > 0;
+		byte positions[] = hasPositions ? new byte[(int) positionStarts[numTerms]] : null;
+		if (hasPositions) {
+			section(buffer, sections, IndexFormat.POSITIONS).get(positions);
+		}
+		int termBytes = (int) sections[IndexFormat.TERM_BYTES];
+		FrontCodedTerms.Builder dictionary = new FrontCodedTerms.Builder();
+		Dictionary words[] = new Dictionary[numTerms];
+		for (int t = 0; t < numTerms; t++) {
+			Dictionary d = new Dictionary();
+			d.term = string(buffer, termBytes + termOffsets[t], termOffsets[t + 1] - termOffsets[t]);
+			if (hasPositions) {
+				d.list = new PostingList(postings, (int) starts[t], (int) starts[t + 1], docFreqs[t], positions, (int) positionStarts[t], (int) positionStarts[t + 1]);
+			} else {
+				d.list = new PostingList(postings, (int) starts[t], (int) starts[t + 1], docFreqs[t]);
+			}
+			d.documentFrequency = docFreqs[t];
+			dictionary.add(d.term);
+			words[t] = d;
+		}
+		return new IndexSnapshot(dictionary.build(), words, documents, hasPositions);
+	}
+
+	private static ByteBuffer section(ByteBuffer buffer, long sections[], int section) {
+		ByteBuffer view = buffer.duplicate();
+		view.position((int) sections[section]);
+		return view.slice();
+	}
+
+	private static String string(ByteBuffer buffer, int position, int length) {
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+		}
+		byte bytes[] = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(position);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,116 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * @author avijayvargiy <br>
+ * IndexMerger concatenates several indexes into one in memory snapshot. The documents of the first index keep
+ * their order, the documents of the second one follow behind them and so on, so every merged posting list is
+ * simply the posting lists of the inputs appended in order and stays sorted by document id.<br>
+ * Documents can be left out while merging; the remaining ones are renumbered without gaps, words that no longer
+ * occur anywhere disappear and document frequencies come out right. Norms and lengths are carried over unchanged
+ * since they only depend on their own document. Positions are carried over if every input has them.<br>
+ * The cost is linear in the total number of postings.
+ */
+public class IndexMerger {
+
+	private static final long BYTES_PER_POSTING = 8; //document id and term frequency
+
+	/**
+	 * @param parts indexes to merge, in document id order
+	 * @return merged snapshot, its term ids follow the alphabetical order of the words
+	 */
+	public IndexSnapshot merge(List < ? extends InvertedIndex > parts) {
+		return merge(parts, null);
+	}
+
+	/**
+	 * @param parts indexes to merge, in document id order
+	 * @param deletions for every part the ids of its documents to leave out, or null (the list or an entry) to keep all
+	 * @return merged snapshot, its term ids follow the alphabetical order of the words
+	 */
+	public IndexSnapshot merge(List < ? extends InvertedIndex > parts, List < BitSet > deletions) {
+		return merge(parts, deletions, null);
+	}
+
+	/**
+	 * @param parts indexes to merge, in document id order
+	 * @param deletions for every part the ids of its documents to leave out, or null (the list or an entry) to keep all
+	 * @param limiter throttles the postings read so that a background merge leaves bandwidth to queries, null for full speed
+	 * @return merged snapshot, its term ids follow the alphabetical order of the words
+	 */
+	public IndexSnapshot merge(List < ? extends InvertedIndex > parts, List < BitSet > deletions, RateLimiter limiter) {
+		int expectedTerms = 0;
+		for (InvertedIndex part : parts) {
+			expectedTerms = Math.max(expectedTerms, part.numTerms());
+		}
+		TermDictionary dictionary = new TermDictionary(expectedTerms);
+		ArrayList < Dictionary > entries = new ArrayList < Dictionary > (expectedTerms);
+		DocumentTable documents = new DocumentTable();
+		boolean positions = !parts.isEmpty();
+		for (InvertedIndex part : parts) {
+			positions &= part.hasPositions();
+		}
+		PostingIterator postings = null;
+		for (int p = 0; p < parts.size(); p++) {
+			InvertedIndex part = parts.get(p);
+			BitSet deleted = deletions == null ? null : deletions.get(p);
+			int docMap[] = new int[part.numDocs()]; //old id -> new id, -1 when left out
+			for (int doc = 0; doc < part.numDocs(); doc++) {
+				if (deleted != null && deleted.get(doc)) {
+					docMap[doc] = -1;
+					continue;
+				}
+				int id = documents.add(part.documentName(doc), part.documentPath(doc));
+				documents.setNorm(id, part.norm(doc));
+				documents.setLength(id, part.documentLength(doc));
+				documents.setFileState(id, part.documentLastModified(doc), part.documentFileSize(doc));
+				docMap[doc] = id;
+			}
+			for (int t = 0; t < part.numTerms(); t++) {
+				Dictionary merged = null; //looked up on the first posting that survives
+				postings = part.postings(t, postings);
+				if (limiter != null) {
+					limiter.pause(part.documentFrequency(t) * BYTES_PER_POSTING);
+				}
+				for (int doc = postings.nextDoc(); doc != PostingIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+					if (docMap[doc] < 0) {
+						continue;
+					}
+					if (merged == null) {
+						merged = entry(dictionary, entries, part.term(t), positions);
+					}
+					merged.list.add(docMap[doc], postings.termFrequency());
+					for (int i = 0; positions && i < postings.termFrequency(); i++) {
+						merged.list.addPosition(postings.nextPosition());
+					}
+				}
+				if (merged != null) {
+					merged.documentFrequency = merged.list.size();
+				}
+			}
+		}
+		int sorted[] = dictionary.sortedIds();
+		Dictionary words[] = new Dictionary[sorted.length];
+		FrontCodedTerms.Builder sortedDictionary = new FrontCodedTerms.Builder();
+		for (int i = 0; i < sorted.length; i++) {
+			words[i] = entries.get(sorted[i]);
+			words[i].list.trim();
+			sortedDictionary.add(words[i].term);
+		}
+		return new IndexSnapshot(sortedDictionary.build(), words, documents, positions);
+	}
+
+	private static Dictionary entry(TermDictionary dictionary, ArrayList < Dictionary > entries, String term, boolean positions) {
+		int id = dictionary.add(term);
+		if (id == entries.size()) {
+			Dictionary d = new Dictionary();
+			d.term = term;
+			d.list = new PostingList(positions);
+			entries.add(d);
+		}
+		return entries.get(id);
+	}
+}
@@ -0,0 +1,132 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * IndexSnapshot is a built index held in memory that is never modified again: the dictionary, the posting
+ * lists and the document table. Any number of threads can query the same snapshot at once; a rebuild produces a new
+ * snapshot instead of changing the one being read.<br>
+ * Term ids follow the alphabetical order of the words, whose text is kept off the heap in {@link FrontCodedTerms}.
+ */
+public final class IndexSnapshot implements InvertedIndex {
+
+	private final FrontCodedTerms dictionary;
+	private final PostingList lists[]; //term id -> posting list
+	private final int documentFrequencies[];
+	private final DocumentTable documents;
+	private final boolean positions;
+	private final long totalLength;
+
+	/**
+	 * adds the skip data to the posting lists, which must be complete. Only the posting lists and document
+	 * frequencies of the words are kept, their terms are read from the dictionary.
+	 * @param dictionary the terms in term id order
+	 * @param words dictionary entries indexed by term id
+	 * @param documents document table, must not be modified afterwards
+	 * @param positions whether the posting lists record positions, either all of them do or none
+	 */
+	public IndexSnapshot(FrontCodedTerms dictionary, Dictionary words[], DocumentTable documents, boolean positions) {
+		if (dictionary.size() != words.length) {
+			throw new IllegalArgumentException(dictionary.size() + " terms for " + words.length + " words");
+		}
+		this.dictionary = dictionary;
+		this.lists = new PostingList[words.length];
+		this.documentFrequencies = new int[words.length];
+		this.documents = documents;
+		this.positions = positions;
+		for (int i = 0; i < words.length; i++) {
+			lists[i] = words[i].list;
+			lists[i].buildSkips(documents);
+			documentFrequencies[i] = words[i].documentFrequency;
+		}
+		long total = 0;
+		for (int d = 0; d < documents.size(); d++) {
+			total += documents.length(d);
+		}
+		this.totalLength = total;
+	}
+
+	public int numDocs() {
+		return documents.size();
+	}
+
+	public int numTerms() {
+		return lists.length;
+	}
+
+	public int termId(String term) {
+		return dictionary.termId(term);
+	}
+
+	public String term(int termId) {
+		return dictionary.term(termId);
+	}
+
+	/**
+	 * @param termId term id
+	 * @return a new dictionary entry of that word, sharing its posting list
+	 */
+	public Dictionary word(int termId) {
+		Dictionary d = new Dictionary();
+		d.term = dictionary.term(termId);
+		d.list = lists[termId];
+		d.documentFrequency = documentFrequencies[termId];
+		return d;
+	}
+
+	public int documentFrequency(int termId) {
+		return documentFrequencies[termId];
+	}
+
+	public PostingIterator postings(int termId, PostingIterator reuse) {
+		PostingList.BytesIterator it = reuse instanceof PostingList.BytesIterator ? (PostingList.BytesIterator) reuse : null;
+		return lists[termId].iterator(it);
+	}
+
+	public double norm(int docId) {
+		return documents.norm(docId);
+	}
+
+	public int documentLength(int docId) {
+		return documents.length(docId);
+	}
+
+	public long totalLength() {
+		return totalLength;
+	}
+
+	public String documentName(int docId) {
+		return documents.name(docId);
+	}
+
+	public String documentPath(int docId) {
+		return documents.path(docId);
+	}
+
+	public long documentLastModified(int docId) {
+		return documents.lastModified(docId);
+	}
+
+	public long documentFileSize(int docId) {
+		return documents.fileSize(docId);
+	}
+
+	public boolean hasPositions() {
+		return positions;
+	}
+
+	/**
+	 * @param termId term id
+	 * @return posting list of the word
+	 */
+	public PostingList postings(int termId) {
+		return lists[termId];
+	}
+
+	public DocumentTable getDocuments() {
+		return documents;
+	}
+
+	public FrontCodedTerms getDictionary() {
+		return dictionary;
+	}
+}
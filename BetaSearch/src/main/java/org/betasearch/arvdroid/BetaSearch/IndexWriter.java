@@ -0,0 +1,408 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * @author avijayvargiy <br>
+ * IndexWriter persists an index in the binary format described by {@link IndexFormat}.<br>
+ * Several indexes can be written as one, the way {@link IndexMerger} merges them but streaming, which is how sorted
+ * runs spilled to disk end up as one index: their documents follow each other and the terms are merged k ways in
+ * alphabetical order. A first pass works out the size of every section, a second one writes each section through
+ * a buffered stream of its own at its place in the file, so nothing of the size of the index is held on the heap
+ * and the postings are read twice rather than written twice.<br>
+ * The file is written next to its destination under a temporary name and then renamed over it,
+ * so a crash while writing never leaves a truncated index behind.
+ */
+public class IndexWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * @param index index to write, held in memory or mapped
+	 * @param file destination, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(InvertedIndex index, File file) throws IOException {
+		write(Collections.singletonList(index), file);
+	}
+
+	/**
+	 * writes indexes as one: the documents of the second part get the ids after those of the first and so on,
+	 * the postings of a term in several parts are concatenated. Positions are kept if every part has them.
+	 * @param parts indexes to write, held in memory or mapped
+	 * @param file destination, replaced if it exists
+	 * @throws IOException if the file cannot be written or the parts hold more than 2^31 documents
+	 */
+	public void write(List < ? extends InvertedIndex > parts, File file) throws IOException {
+		int bases[] = new int[parts.size()]; //id of the first document of every part
+		long numDocs = 0;
+		long totalLength = 0;
+		boolean positions = !parts.isEmpty();
+		long docBytes = 0;
+		for (int p = 0; p < parts.size(); p++) {
+			InvertedIndex part = parts.get(p);
+			bases[p] = (int) numDocs;
+			numDocs += part.numDocs();
+			totalLength += part.totalLength();
+			positions &= part.hasPositions();
+			for (int d = 0; d < part.numDocs(); d++) {
+				docBytes += utf8(part.documentName(d)).length + utf8(part.documentPath(d)).length;
+			}
+		}
+		if (numDocs > Integer.MAX_VALUE) {
+			throw new IOException("more than 2^31 documents");
+		}
+
+		//first pass, writing nowhere: the size of every term section
+		long termBytes = 0;
+		long numPostings = 0;
+		long numBlocks = 0;
+		int numTerms = 0;
+		TermWriter counter = new TermWriter(parts, bases, positions, null, null);
+		for (TermMerge terms = new TermMerge(parts); terms.next();) {
+			numTerms++;
+			termBytes += utf8(terms.term()).length;
+			numPostings += terms.documentFrequency();
+			numBlocks += IndexFormat.blocks(terms.documentFrequency());
+			counter.postings(terms);
+		}
+		counter.flush();
+		if (docBytes > Integer.MAX_VALUE || termBytes > Integer.MAX_VALUE) {
+			throw new IOException("document or term strings exceed 2GB");
+		}
+
+		long sections[] = new long[IndexFormat.SECTIONS];
+		long position = IndexFormat.HEADER_SIZE;
+		sections[IndexFormat.NORMS] = position;
+		position += 8L * numDocs;
+		sections[IndexFormat.DOC_OFFSETS] = position;
+		position += 4L * (2 * numDocs + 1);
+		sections[IndexFormat.DOC_BYTES] = position;
+		position += docBytes;
+		sections[IndexFormat.DOC_FILES] = position;
+		position += 16L * numDocs;
+		sections[IndexFormat.TERM_OFFSETS] = position;
+		position += 4L * (numTerms + 1);
+		sections[IndexFormat.TERM_BYTES] = position;
+		position += termBytes;
+		sections[IndexFormat.POSTING_STARTS] = position;
+		position += 8L * (numTerms + 1);
+		sections[IndexFormat.DOC_FREQS] = position;
+		position += 4L * numTerms;
+		sections[IndexFormat.POSTINGS] = position;
+		position += counter.postingBytes.written;
+		sections[IndexFormat.SKIPS] = position;
+		position += numBlocks * IndexFormat.SKIP_ENTRY_SIZE;
+		sections[IndexFormat.POSITION_STARTS] = position;
+		position += positions ? 8L * (numTerms + 1) : 0;
+		sections[IndexFormat.POSITIONS] = position;
+		position += counter.positionBytes.written;
+		sections[IndexFormat.DOC_LENGTHS] = position;
+		position += 4L * numDocs;
+		sections[IndexFormat.SKIP_STARTS] = position;
+
+		File tmp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		boolean written = false;
+		try {
+			DataOutputStream header = section(channel, 0);
+			header.writeInt(IndexFormat.MAGIC);
+			header.writeInt(IndexFormat.VERSION);
+			header.writeInt((int) numDocs);
+			header.writeInt(numTerms);
+			header.writeLong(numPostings);
+			header.writeLong(totalLength);
+			for (int i = 0; i < sections.length; i++) {
+				header.writeLong(sections[i]);
+			}
+			header.close();
+
+			DataOutputStream norms = section(channel, sections[IndexFormat.NORMS]);
+			DataOutputStream docOffsets = section(channel, sections[IndexFormat.DOC_OFFSETS]);
+			DataOutputStream docStrings = section(channel, sections[IndexFormat.DOC_BYTES]);
+			DataOutputStream docFiles = section(channel, sections[IndexFormat.DOC_FILES]);
+			DataOutputStream docLengths = section(channel, sections[IndexFormat.DOC_LENGTHS]);
+			int offset = 0;
+			docOffsets.writeInt(offset);
+			for (InvertedIndex part : parts) {
+				for (int d = 0; d < part.numDocs(); d++) {
+					norms.writeDouble(part.norm(d));
+					byte name[] = utf8(part.documentName(d));
+					byte path[] = utf8(part.documentPath(d));
+					docOffsets.writeInt(offset += name.length);
+					docOffsets.writeInt(offset += path.length);
+					docStrings.write(name);
+					docStrings.write(path);
+					docFiles.writeLong(part.documentLastModified(d));
+					docFiles.writeLong(part.documentFileSize(d));
+					docLengths.writeInt(part.documentLength(d));
+				}
+			}
+			norms.close();
+			docOffsets.close();
+			docStrings.close();
+			docFiles.close();
+			docLengths.close();
+
+			DataOutputStream termOffsets = section(channel, sections[IndexFormat.TERM_OFFSETS]);
+			DataOutputStream termStrings = section(channel, sections[IndexFormat.TERM_BYTES]);
+			DataOutputStream postingStarts = section(channel, sections[IndexFormat.POSTING_STARTS]);
+			DataOutputStream docFreqs = section(channel, sections[IndexFormat.DOC_FREQS]);
+			DataOutputStream positionStarts = section(channel, sections[IndexFormat.POSITION_STARTS]);
+			DataOutputStream skipStarts = section(channel, sections[IndexFormat.SKIP_STARTS]);
+			TermWriter writer = new TermWriter(parts, bases, positions, channel, sections);
+			offset = 0;
+			termOffsets.writeInt(offset);
+			postingStarts.writeLong(0);
+			if (positions) {
+				positionStarts.writeLong(0);
+			}
+			int skipStart = 0;
+			skipStarts.writeInt(skipStart);
+			for (TermMerge terms = new TermMerge(parts); terms.next();) {
+				byte term[] = utf8(terms.term());
+				termOffsets.writeInt(offset += term.length);
+				termStrings.write(term);
+				docFreqs.writeInt(terms.documentFrequency());
+				skipStarts.writeInt(skipStart += IndexFormat.blocks(terms.documentFrequency()));
+				writer.postings(terms);
+				postingStarts.writeLong(writer.postingsEnd);
+				if (positions) {
+					positionStarts.writeLong(writer.positionsEnd);
+				}
+			}
+			termOffsets.close();
+			termStrings.close();
+			postingStarts.close();
+			docFreqs.close();
+			positionStarts.close();
+			skipStarts.close();
+			writer.flush();
+			written = true;
+		} finally {
+			channel.close();
+			if (!written) {
+				tmp.delete();
+			}
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static byte[] utf8(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * a buffered stream writing a section of the file from its start on.
+	 */
+	private static DataOutputStream section(FileChannel channel, long position) {
+		return new DataOutputStream(new BufferedOutputStream(new SectionOutput(channel, position), BUFFER_SIZE));
+	}
+
+	/*
+	 * writes bytes to a file channel from a position on, or nowhere when there is no channel, counting them.
+	 */
+	private static final class SectionOutput extends OutputStream {
+		private final FileChannel channel; //null to only count
+		private long position;
+		long written;
+
+		SectionOutput(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		public void write(byte b[], int off, int len) throws IOException {
+			written += len;
+			if (channel == null) {
+				return;
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		}
+	}
+
+	/*
+	 * walks the terms of the parts in alphabetical order, a term several parts have once, with the parts that have
+	 * it in part order.
+	 */
+	private static final class TermMerge {
+		private final List < ? extends InvertedIndex > parts;
+		private final String heads[]; //next term of every part
+		private final int ids[]; //its id in the part
+		private final PriorityQueue < Integer > queue; //parts with terms left, by their next term
+		private final int matched[]; //the parts having the current term, in part order
+		private final int matchedIds[];
+		private int count;
+		private String term;
+		private int documentFrequency;
+
+		TermMerge(List < ? extends InvertedIndex > parts) {
+			this.parts = parts;
+			heads = new String[parts.size()];
+			ids = new int[parts.size()];
+			matched = new int[parts.size()];
+			matchedIds = new int[parts.size()];
+			queue = new PriorityQueue < Integer > (Math.max(1, parts.size()), new Comparator < Integer > () {
+				public int compare(Integer a, Integer b) {
+					int c = heads[a].compareTo(heads[b]);
+					return c != 0 ? c : a - b;
+				}
+			});
+			for (int p = 0; p < parts.size(); p++) {
+				if (parts.get(p).numTerms() > 0) {
+					heads[p] = parts.get(p).term(0);
+					queue.add(p);
+				}
+			}
+		}
+
+		/*
+		 * moves to the next term, false once there is none.
+		 */
+		boolean next() {
+			if (queue.isEmpty()) {
+				return false;
+			}
+			term = heads[queue.peek()];
+			count = 0;
+			documentFrequency = 0;
+			while (!queue.isEmpty() && heads[queue.peek()].equals(term)) {
+				int p = queue.poll();
+				matched[count] = p;
+				matchedIds[count++] = ids[p];
+				documentFrequency += parts.get(p).documentFrequency(ids[p]);
+			}
+			for (int i = 0; i < count; i++) {
+				int p = matched[i];
+				if (++ids[p] < parts.get(p).numTerms()) {
+					heads[p] = parts.get(p).term(ids[p]);
+					queue.add(p);
+				}
+			}
+			return true;
+		}
+
+		String term() {
+			return term;
+		}
+
+		int documentFrequency() {
+			return documentFrequency;
+		}
+	}
+
+	/*
+	 * encodes the postings, skip data and positions of merged terms into their sections, or only counts their
+	 * bytes when it has no channel.
+	 */
+	private static final class TermWriter {
+		private final List < ? extends InvertedIndex > parts;
+		private final int bases[];
+		private final boolean positions;
+		private final PostingIterator reuse[];
+		private final byte scratch[] = new byte[2 * VByte.MAX_BYTES];
+		final SectionOutput postingBytes;
+		final SectionOutput positionBytes;
+		private final OutputStream postings;
+		private final DataOutputStream skips;
+		private final OutputStream positionStream;
+		long postingsEnd; //end of the last term's postings, relative to the postings section
+		long positionsEnd;
+
+		/*
+		 * channel and sections are null to count the bytes only.
+		 */
+		TermWriter(List < ? extends InvertedIndex > parts, int bases[], boolean positions, FileChannel channel, long sections[]) {
+			this.parts = parts;
+			this.bases = bases;
+			this.positions = positions;
+			this.reuse = new PostingIterator[parts.size()];
+			postingBytes = new SectionOutput(channel, channel == null ? 0 : sections[IndexFormat.POSTINGS]);
+			positionBytes = new SectionOutput(channel, channel == null ? 0 : sections[IndexFormat.POSITIONS]);
+			postings = new BufferedOutputStream(postingBytes, BUFFER_SIZE);
+			positionStream = new BufferedOutputStream(positionBytes, BUFFER_SIZE);
+			skips = new DataOutputStream(new BufferedOutputStream(
+					new SectionOutput(channel, channel == null ? 0 : sections[IndexFormat.SKIPS]), BUFFER_SIZE));
+		}
+
+		/*
+		 * writes the postings of the current term: the lists of the parts one after the other, their document ids
+		 * shifted by the part's first id, the skip data over the whole and the positions.
+		 */
+		void postings(TermMerge terms) throws IOException {
+			int documentFrequency = terms.documentFrequency();
+			boolean blocks = IndexFormat.blocks(documentFrequency) > 0;
+			int previous = 0;
+			int written = 0;
+			int positionsWritten = 0;
+			int count = 0;
+			int maxTf = 0;
+			double maxImpact = 0;
+			for (int i = 0; i < terms.count; i++) {
+				int p = terms.matched[i];
+				InvertedIndex part = parts.get(p);
+				PostingIterator it = reuse[p] = part.postings(terms.matchedIds[i], reuse[p]);
+				for (int doc = it.nextDoc(); doc != PostingIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+					int id = bases[p] + doc;
+					int tf = it.termFrequency();
+					int length = VByte.write(scratch, 0, id - previous);
+					length = VByte.write(scratch, length, tf);
+					postings.write(scratch, 0, length);
+					previous = id;
+					written += length;
+					maxTf = Math.max(maxTf, tf);
+					maxImpact = Math.max(maxImpact, CosineSimilarity.impact(tf, part.norm(doc)));
+					if (positions) {
+						int last = 0;
+						for (int j = 0; j < tf; j++) {
+							int position = it.nextPosition();
+							length = VByte.write(scratch, 0, position - last);
+							positionStream.write(scratch, 0, length);
+							positionsWritten += length;
+							last = position;
+						}
+					}
+					if (blocks && (++count % PostingList.BLOCK_SIZE == 0 || count == documentFrequency)) {
+						skips.writeInt(id);
+						skips.writeInt(written);
+						skips.writeInt(maxTf);
+						skips.writeDouble(maxImpact);
+						skips.writeInt(positionsWritten);
+						maxTf = 0;
+						maxImpact = 0;
+					}
+				}
+			}
+			postingsEnd += written;
+			positionsEnd += positionsWritten;
+		}
+
+		void flush() throws IOException {
+			postings.close();
+			skips.close();
+			positionStream.close();
+		}
+	}
+}
@@ -0,0 +1,934 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author avijayvargiy <br>
+ * IndexingPipeline builds the index of a directory in stages, each with its own threads, handing batches of
+ * documents from one to the next through bounded queues:<br>
+ *  1)DISCOVER: the {@link Filter} walks the tree, on the calling thread, and cuts the documents into batches<br>
+ *  2)READ: the files of a batch are read into memory; more threads than cores pay off on a slow or remote disk<br>
+ *  3)ANALYZE: the bytes are decoded, tokenized and stemmed into a compact buffer of terms<br>
+ *  4)INVERT: the terms go into the posting lists of a partial index; with several inverters every one takes a run
+ *  of consecutive batches into a partial of its own, a single one takes them all into one<br>
+ *  5)FLUSH: every partial is frozen into an {@link IndexSnapshot}; at the end they are merged in order.<br>
+ * {@link #write(Filter, String, boolean, Filter.DocumentConsumer, File) write} builds an index larger than the heap
+ * straight into an index file, the single pass in-memory inversion of SPIMI: an inverter cuts its partial as soon
+ * as it takes its share of the {@link #setMemoryBudget(long) memory budget}, the flushers spill every partial as a
+ * sorted run to a file next to the index, and at the end the runs are merged k ways by {@link IndexWriter}, at most
+ * {@value #MAX_MERGE_FAN_IN} at a time, into the index file.<br>
+ * A stage that falls behind fills its input queue and the stages before it wait on it, so a fast disk cannot read
+ * the tree into the heap ahead of the analyzers and a slow disk leaves the analyzers waiting rather than spinning:
+ * at most {@link #setMaxBatchesInFlight(int) maxBatchesInFlight} batches are between discovery and inversion at
+ * any time. Batches are put back into discovery order before they are inverted, so document ids come out exactly as
+ * in a single threaded build.<br>
+ * {@link #getStats()} tells for every stage its throughput, how busy its threads were, how long they waited for the
+ * next stage and how full its input queue got, which is what the stages are sized by: a stage whose input queue
+ * stays full is the bottleneck and wants more threads, one whose threads are mostly idle has more than it needs.
+ * <pre>
+ * {@code
+ *  IndexingPipeline pipeline = new IndexingPipeline();
+ *  pipeline.setThreads(IndexingPipeline.Stage.READ, 8);   //documents on NFS
+ *  pipeline.setThreads(IndexingPipeline.Stage.ANALYZE, Runtime.getRuntime().availableProcessors());
+ *  IndexSnapshot index = pipeline.build(new Filter(), directory, false, null);
+ *  System.out.println(Arrays.toString(pipeline.getStats()));
+ * }
+ * </pre>
+ */
+public class IndexingPipeline {
+
+	/**
+	 * the stages, in the order the documents go through them
+	 */
+	public enum Stage {
+		DISCOVER, READ, ANALYZE, INVERT, FLUSH
+	}
+
+	/**
+	 * batches the queue in front of the read, analyze and flush stages holds by default
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+	/**
+	 * batches between discovery and inversion at most by default
+	 */
+	public static final int DEFAULT_MAX_BATCHES_IN_FLIGHT = 32;
+
+	static final int BATCH_DOCUMENTS = 256; //a batch is cut at this many documents
+	static final long BATCH_BYTES = 1 << 20; //or once its files add up to this many bytes
+	static final int BATCHES_PER_PARTIAL = 8; //consecutive batches inverted into one partial index by parallel inverters
+	static final long MAX_READ_BYTES = 8 << 20; //a larger file is streamed by the analyzer instead of read whole
+	static final int MAX_MERGE_FAN_IN = 64; //runs merged at once, bounds the open mappings and the merge state per run
+	private static final long POLL_MILLIS = 50; //how often a blocked hand over checks whether the build failed
+
+	private final int batchDocuments;
+	private final int batchesPerPartial;
+	private final int threads[] = new int[Stage.values().length];
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private int maxBatchesInFlight = DEFAULT_MAX_BATCHES_IN_FLIGHT;
+	private long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+	private volatile StageStats stats[] = new StageStats[0];
+
+	public IndexingPipeline() {
+		this(BATCH_DOCUMENTS, BATCHES_PER_PARTIAL);
+	}
+
+	/**
+	 * @param batchDocuments documents per batch at most
+	 * @param batchesPerPartial consecutive batches parallel inverters take into one partial index
+	 */
+	IndexingPipeline(int batchDocuments, int batchesPerPartial) {
+		this.batchDocuments = batchDocuments;
+		this.batchesPerPartial = batchesPerPartial;
+		Arrays.fill(threads, 1);
+	}
+
+	public synchronized int getThreads(Stage stage) {
+		return threads[stage.ordinal()];
+	}
+
+	/**
+	 * @param stage stage to size, from the next build on; discovery always runs on the calling thread
+	 * @param count number of threads of the stage
+	 */
+	public synchronized void setThreads(Stage stage, int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("threads must be at least 1: " + count);
+		}
+		if (stage == Stage.DISCOVER && count != 1) {
+			throw new IllegalArgumentException("discovery runs on the calling thread");
+		}
+		threads[stage.ordinal()] = count;
+	}
+
+	public synchronized int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * @param batches batches the queue in front of the read, analyze and flush stages holds; the queue of an
+	 * inverter holds one partial index worth of batches
+	 */
+	public synchronized void setQueueCapacity(int batches) {
+		if (batches < 1) {
+			throw new IllegalArgumentException("queue capacity must be at least 1: " + batches);
+		}
+		this.queueCapacity = batches;
+	}
+
+	public synchronized int getMaxBatchesInFlight() {
+		return maxBatchesInFlight;
+	}
+
+	/**
+	 * @param batches batches that may be between discovery and inversion, which bounds the memory the documents
+	 * and their terms take while they wait; a batch is at most about a MB of text. Parallel inverters work on runs of
+	 * {@value #BATCHES_PER_PARTIAL} batches, more invert threads want this raised accordingly.
+	 */
+	public synchronized void setMaxBatchesInFlight(int batches) {
+		if (batches < 1) {
+			throw new IllegalArgumentException("batches in flight must be at least 1: " + batches);
+		}
+		this.maxBatchesInFlight = batches;
+	}
+
+	public synchronized long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * @param bytes heap the partial indexes of {@link #write(Filter, String, boolean, Filter.DocumentConsumer, File)
+	 * write} may take together before they are spilled, a quarter of the maximum heap by default. The batches in
+	 * flight come on top.
+	 */
+	public synchronized void setMemoryBudget(long bytes) {
+		if (bytes < 1) {
+			throw new IllegalArgumentException("memory budget must be at least 1: " + bytes);
+		}
+		this.memoryBudget = bytes;
+	}
+
+	/**
+	 * @return the counters of the last build, or of the one running, one per stage in stage order
+	 */
+	public StageStats[] getStats() {
+		return stats.clone();
+	}
+
+	/**
+	 * indexes every document the filter finds in the directory.
+	 * @param filter picks the documents
+	 * @param dirName directory to index
+	 * @param positions whether to record the positions of the terms
+	 * @param discovered told about every document as it is found, on the calling thread, may be null
+	 * @return the index, document ids in the order the filter found the documents
+	 * @throws IOException if dirName is not a readable directory
+	 * @throws IllegalStateException if a stage failed
+	 */
+	public IndexSnapshot build(Filter filter, String dirName, boolean positions, Filter.DocumentConsumer discovered)
+			throws IOException {
+		Run run = start(positions, discovered, null);
+		boolean done = false;
+		try {
+			run.discover(filter, dirName);
+			run.await();
+			IndexSnapshot index = run.merge();
+			done = true;
+			return index;
+		} finally {
+			if (!done) {
+				run.cancel();
+			}
+		}
+	}
+
+	/**
+	 * indexes every document the filter finds in the directory into an index file, holding at most about
+	 * {@link #getMemoryBudget()} bytes of postings on the heap. The runs are spilled to a temporary directory next
+	 * to the file and deleted at the end.
+	 * @param filter picks the documents
+	 * @param dirName directory to index
+	 * @param positions whether to record the positions of the terms
+	 * @param discovered told about every document as it is found, on the calling thread, may be null
+	 * @param file index file to write, replaced if it exists, document ids in the order the filter found the documents
+	 * @throws IOException if dirName is not a readable directory or a file cannot be written
+	 * @throws IllegalStateException if a stage failed
+	 */
+	public void write(Filter filter, String dirName, boolean positions, Filter.DocumentConsumer discovered, File file)
+			throws IOException {
+		File runs = Files.createTempDirectory(file.getAbsoluteFile().getParentFile().toPath(), file.getName() + ".runs").toFile();
+		try {
+			Run run = start(positions, discovered, runs);
+			boolean done = false;
+			try {
+				run.discover(filter, dirName);
+				run.await();
+				run.write(file);
+				done = true;
+			} finally {
+				if (!done) {
+					run.cancel();
+				}
+			}
+		} finally {
+			File left[] = runs.listFiles();
+			for (int i = 0; left != null && i < left.length; i++) {
+				left[i].delete();
+			}
+			runs.delete();
+		}
+	}
+
+	/*
+	 * sets up a build with the current settings, its threads start waiting for documents.
+	 */
+	private Run start(boolean positions, Filter.DocumentConsumer discovered, File runs) {
+		Run run;
+		synchronized (this) {
+			run = new Run(positions, discovered, runs);
+		}
+		stats = run.stats;
+		return run;
+	}
+
+	/**
+	 * what one stage did during a build. The counters are live while the build runs.
+	 */
+	public static final class StageStats {
+		private final Stage stage;
+		private final int threads;
+		private final List < ? extends BlockingQueue < ? >> input; //empty for discovery
+		private final int queueCapacity;
+		private final long start = System.nanoTime();
+		private volatile long end;
+		final AtomicLong documents = new AtomicLong();
+		final AtomicLong bytes = new AtomicLong();
+		final AtomicLong busyNanos = new AtomicLong();
+		final AtomicLong blockedNanos = new AtomicLong();
+		private final AtomicInteger peakQueueDepth = new AtomicInteger();
+
+		StageStats(Stage stage, int threads, List < ? extends BlockingQueue < ? >> input) {
+			this.stage = stage;
+			this.threads = threads;
+			this.input = input;
+			int capacity = 0;
+			for (BlockingQueue < ? > queue : input) {
+				capacity += queue.remainingCapacity();
+			}
+			this.queueCapacity = capacity;
+		}
+
+		public Stage getStage() {
+			return stage;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		/**
+		 * @return documents through the stage so far
+		 */
+		public long getDocuments() {
+			return documents.get();
+		}
+
+		/**
+		 * @return bytes of text through the stage so far
+		 */
+		public long getBytes() {
+			return bytes.get();
+		}
+
+		/**
+		 * @return time the threads of the stage spent working, added up over the threads
+		 */
+		public long getBusyNanos() {
+			return busyNanos.get();
+		}
+
+		/**
+		 * @return time the threads of the stage spent waiting for room in the next stage's queue
+		 */
+		public long getBlockedNanos() {
+			return blockedNanos.get();
+		}
+
+		/**
+		 * @return batches waiting in front of the stage now
+		 */
+		public int getQueueDepth() {
+			int depth = 0;
+			for (BlockingQueue < ? > queue : input) {
+				depth += queue.size();
+			}
+			return depth;
+		}
+
+		/**
+		 * @return most batches that waited in front of the stage at once
+		 */
+		public int getPeakQueueDepth() {
+			return peakQueueDepth.get();
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		/**
+		 * @return time since the build started, up to its end once it is over
+		 */
+		public long getElapsedNanos() {
+			long e = end;
+			return (e == 0 ? System.nanoTime() : e) - start;
+		}
+
+		public double getDocumentsPerSecond() {
+			return documents.get() * 1e9 / Math.max(1, getElapsedNanos());
+		}
+
+		public double getBytesPerSecond() {
+			return bytes.get() * 1e9 / Math.max(1, getElapsedNanos());
+		}
+
+		/**
+		 * @return share of the build's time the threads of the stage were working, 1 for all of them all the time
+		 */
+		public double getUtilization() {
+			return busyNanos.get() / ((double) threads * Math.max(1, getElapsedNanos()));
+		}
+
+		void sampleQueueDepth() {
+			int depth = getQueueDepth();
+			int peak;
+			while (depth > (peak = peakQueueDepth.get()) && !peakQueueDepth.compareAndSet(peak, depth)) {
+			}
+		}
+
+		void finish() {
+			end = System.nanoTime();
+		}
+
+		public String toString() {
+			return String.format("%s: %d threads, %d documents, %.1f docs/s, %.1f MB/s, %.0f%% busy, %.1f s blocked,"
+					+ " queue %d/%d (peak %d)", stage, threads, documents.get(), getDocumentsPerSecond(),
+					getBytesPerSecond() / (1 << 20), 100 * getUtilization(), blockedNanos.get() / 1e9,
+					getQueueDepth(), queueCapacity, peakQueueDepth.get());
+		}
+	}
+
+	/*
+	 * a file found by the walk, then its bytes, then where its terms end in its batch.
+	 */
+	private static final class Document {
+		final File file;
+		final long modified; //file state taken before reading, a write during indexing is picked up next time
+		final long size;
+		byte content[]; //null before reading, when streamed by the analyzer and once analyzed
+		boolean readable = true; //an unreadable file is reported and gets no id
+		int termsEnd; //end of the terms of the document in its batch
+
+		Document(File file, BasicFileAttributes attributes) {
+			this.file = file;
+			this.modified = attributes.lastModifiedTime().toMillis();
+			this.size = attributes.size();
+		}
+	}
+
+	/*
+	 * consecutive documents going through the stages together, with the terms the analyzer made of them.
+	 */
+	private static final class Batch implements Analyzer.TermConsumer {
+		static final Batch END = new Batch(-1); //no more batches for the stage
+
+		final int seq; //position in discovery order
+		final List < Document > documents = new ArrayList < Document > ();
+		long bytes;
+		char text[]; //the terms of all the documents, one after the other
+		int textLength;
+		int ends[]; //end of every term in text
+		int terms;
+
+		Batch(int seq) {
+			this.seq = seq;
+		}
+
+		public void accept(char term[], int length) {
+			if (textLength + length > text.length) {
+				text = Arrays.copyOf(text, Math.max(textLength + length, text.length * 2));
+			}
+			System.arraycopy(term, 0, text, textLength, length);
+			textLength += length;
+			if (terms == ends.length) {
+				ends = Arrays.copyOf(ends, terms * 2);
+			}
+			ends[terms++] = textLength;
+		}
+
+		/*
+		 * forgets the terms from the given one on, those of a document that could not be read to its end.
+		 */
+		void truncate(int term) {
+			terms = term;
+			textLength = term == 0 ? 0 : ends[term - 1];
+		}
+	}
+
+	/*
+	 * a partial index once its run of batches is inverted.
+	 */
+	private static final class Partial {
+		static final Partial END = new Partial(-1, null, 0, 0);
+
+		final int index; //seq of its first batch, which orders the partials
+		final IndexBuilder builder;
+		final long documents;
+		final long bytes;
+
+		Partial(int index, IndexBuilder builder, long documents, long bytes) {
+			this.index = index;
+			this.builder = builder;
+			this.documents = documents;
+			this.bytes = bytes;
+		}
+	}
+
+	/*
+	 * the queues, threads and counters of one build.
+	 */
+	private final class Run implements Filter.DocumentConsumer {
+		private final boolean positions;
+		private final Filter.DocumentConsumer discovered;
+		private final int threads[];
+		private final StageStats stats[] = new StageStats[Stage.values().length];
+		private final BlockingQueue < Batch > reading;
+		private final BlockingQueue < Batch > analyzing;
+		private final List < BlockingQueue < Batch >> inverting = new ArrayList < BlockingQueue < Batch >> ();
+		private final int run; //batches per partial index
+		private final File runs; //directory the partials are spilled to, null to keep them in memory
+		private final long partialBytes; //heap an inverter lets its partial take before cutting it
+		private final BlockingQueue < Partial > flushing;
+		private final Semaphore inFlight;
+		private final ExecutorService pool;
+		private final AtomicReference < Throwable > failure = new AtomicReference < Throwable > ();
+		private final AtomicInteger running[] = new AtomicInteger[Stage.values().length]; //threads yet to finish
+		private final Map < Integer, Batch > pending = new HashMap < Integer, Batch > (); //analyzed ahead of their turn
+		private int next; //seq of the next batch to invert, guarded by pending
+		private final Map < Integer, IndexSnapshot > snapshots = new TreeMap < Integer, IndexSnapshot > (); //guarded by itself
+		private final Map < Integer, File > spilled = new TreeMap < Integer, File > (); //likewise
+		private Batch batch = new Batch(0); //being filled by discovery
+
+		Run(boolean positions, Filter.DocumentConsumer discovered, File runs) {
+			this.positions = positions;
+			this.discovered = discovered;
+			this.runs = runs;
+			this.threads = IndexingPipeline.this.threads.clone();
+			reading = new ArrayBlockingQueue < Batch > (queueCapacity);
+			analyzing = new ArrayBlockingQueue < Batch > (queueCapacity);
+			//partials only pay off when they are inverted in parallel, building and merging them is not for free
+			int inverters = threads[Stage.INVERT.ordinal()];
+			run = inverters == 1 ? Integer.MAX_VALUE : batchesPerPartial;
+			for (int i = 0; i < inverters; i++) {
+				//room for a whole run, so the next inverter gets its batches while this one works through them
+				inverting.add(new ArrayBlockingQueue < Batch > (inverters == 1 ? queueCapacity : run));
+			}
+			int flushers = threads[Stage.FLUSH.ordinal()];
+			//a spilled build holds the partials being inverted, waiting to be flushed and being flushed
+			flushing = new ArrayBlockingQueue < Partial > (runs == null ? queueCapacity : flushers);
+			partialBytes = runs == null ? Long.MAX_VALUE : Math.max(1, memoryBudget / (inverters + 2 * flushers));
+			inFlight = new Semaphore(maxBatchesInFlight);
+			stats[Stage.DISCOVER.ordinal()] = new StageStats(Stage.DISCOVER, 1,
+					Collections.<BlockingQueue<?>>emptyList());
+			stats[Stage.READ.ordinal()] = new StageStats(Stage.READ, threads[Stage.READ.ordinal()],
+					Collections.singletonList(reading));
+			stats[Stage.ANALYZE.ordinal()] = new StageStats(Stage.ANALYZE, threads[Stage.ANALYZE.ordinal()],
+					Collections.singletonList(analyzing));
+			stats[Stage.INVERT.ordinal()] = new StageStats(Stage.INVERT, threads[Stage.INVERT.ordinal()], inverting);
+			stats[Stage.FLUSH.ordinal()] = new StageStats(Stage.FLUSH, threads[Stage.FLUSH.ordinal()],
+					Collections.singletonList(flushing));
+			int workers = 0;
+			for (Stage stage : Stage.values()) {
+				running[stage.ordinal()] = new AtomicInteger(threads[stage.ordinal()]);
+				if (stage != Stage.DISCOVER) {
+					workers += threads[stage.ordinal()];
+				}
+			}
+			pool = Executors.newFixedThreadPool(workers);
+			for (int i = 0; i < threads[Stage.READ.ordinal()]; i++) {
+				pool.execute(new Reader());
+			}
+			for (int i = 0; i < threads[Stage.ANALYZE.ordinal()]; i++) {
+				pool.execute(new Tokenizer());
+			}
+			for (BlockingQueue < Batch > queue : inverting) {
+				pool.execute(new Inverter(queue));
+			}
+			for (int i = 0; i < threads[Stage.FLUSH.ordinal()]; i++) {
+				pool.execute(new Flusher());
+			}
+		}
+
+		/*
+		 * walks the tree on the calling thread, then tells the readers there is nothing more.
+		 */
+		void discover(Filter filter, String dirName) throws IOException {
+			StageStats s = stats[Stage.DISCOVER.ordinal()];
+			long start = System.nanoTime();
+			try {
+				filter.walk(dirName, this);
+				if (!batch.documents.isEmpty()) {
+					submit();
+				}
+				end(reading, Stage.READ, Batch.END, s);
+			} catch (CancellationException e) {
+				//a stage failed, await() reports it
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("index build interrupted", e);
+			} finally {
+				s.busyNanos.addAndGet(System.nanoTime() - start - s.blockedNanos.get());
+			}
+		}
+
+		public void accept(File document, BasicFileAttributes attributes) {
+			if (discovered != null) {
+				discovered.accept(document, attributes);
+			}
+			Document d = new Document(document, attributes);
+			if (batch.documents.size() == batchDocuments || !batch.documents.isEmpty() && batch.bytes + d.size > BATCH_BYTES) {
+				submit();
+			}
+			batch.documents.add(d);
+			batch.bytes += d.size;
+			StageStats s = stats[Stage.DISCOVER.ordinal()];
+			s.documents.incrementAndGet();
+			s.bytes.addAndGet(d.size);
+		}
+
+		/*
+		 * hands the batch being filled to the readers once there is room for it.
+		 */
+		private void submit() {
+			StageStats s = stats[Stage.DISCOVER.ordinal()];
+			try {
+				if (!inFlight.tryAcquire()) {
+					long start = System.nanoTime();
+					while (!inFlight.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+						checkFailure();
+					}
+					s.blockedNanos.addAndGet(System.nanoTime() - start);
+				}
+				put(reading, Stage.READ, batch, s);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("index build interrupted", e);
+			}
+			batch = new Batch(batch.seq + 1);
+		}
+
+		/*
+		 * waits for the stages to drain.
+		 */
+		void await() {
+			pool.shutdown();
+			try {
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("index build interrupted", e);
+			}
+			if (failure.get() != null) {
+				finishStats();
+				throw new IllegalStateException("index build failed", failure.get());
+			}
+		}
+
+		/*
+		 * merges the partial indexes in order.
+		 */
+		IndexSnapshot merge() {
+			StageStats s = stats[Stage.FLUSH.ordinal()];
+			long start = System.nanoTime();
+			List < IndexSnapshot > parts = new ArrayList < IndexSnapshot > (snapshots.values());
+			IndexSnapshot index;
+			if (parts.isEmpty()) {
+				index = new IndexBuilder(positions).build();
+			} else if (parts.size() == 1) {
+				index = parts.get(0);
+			} else {
+				index = new IndexMerger().merge(parts);
+			}
+			s.busyNanos.addAndGet(System.nanoTime() - start);
+			finishStats();
+			return index;
+		}
+
+		/*
+		 * merges the spilled runs in order into the index file, in rounds while there are more than the fan in.
+		 */
+		void write(File file) throws IOException {
+			StageStats s = stats[Stage.FLUSH.ordinal()];
+			long start = System.nanoTime();
+			List < File > files = new ArrayList < File > (spilled.values());
+			int round = 0;
+			while (files.size() > MAX_MERGE_FAN_IN) {
+				List < File > merged = new ArrayList < File > ();
+				for (int from = 0; from < files.size(); from += MAX_MERGE_FAN_IN) {
+					List < File > group = files.subList(from, Math.min(files.size(), from + MAX_MERGE_FAN_IN));
+					File to = new File(runs, "merge" + round + "-" + merged.size());
+					merge(group, to);
+					merged.add(to);
+				}
+				files = merged;
+				round++;
+			}
+			merge(files, file);
+			s.busyNanos.addAndGet(System.nanoTime() - start);
+			finishStats();
+		}
+
+		/*
+		 * writes runs as one index and deletes them.
+		 */
+		private void merge(List < File > files, File to) throws IOException {
+			List < MappedIndex > parts = new ArrayList < MappedIndex > (files.size());
+			for (File f : files) {
+				parts.add(MappedIndex.open(f));
+			}
+			new IndexWriter().write(parts, to);
+			for (File f : files) {
+				f.delete(); //still mapped, which some platforms refuse, write() cleans up what is left
+			}
+		}
+
+		private void finishStats() {
+			for (StageStats stage : stats) {
+				stage.finish();
+			}
+		}
+
+		/*
+		 * gives up on the build, stopping every stage.
+		 */
+		void cancel() {
+			failure.compareAndSet(null, new CancellationException("index build cancelled"));
+			pool.shutdownNow();
+			finishStats();
+		}
+
+		/*
+		 * the first failure of a stage ends the build.
+		 */
+		private void fail(Throwable t) {
+			failure.compareAndSet(null, t);
+			pool.shutdownNow();
+		}
+
+		private void checkFailure() {
+			if (failure.get() != null) {
+				throw new CancellationException();
+			}
+		}
+
+		/*
+		 * hands an item to the next stage, waiting for room in its queue.
+		 */
+		private < T > void put(BlockingQueue < T > queue, Stage to, T item, StageStats from) throws InterruptedException {
+			if (!queue.offer(item)) {
+				long start = System.nanoTime();
+				while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+					checkFailure();
+				}
+				from.blockedNanos.addAndGet(System.nanoTime() - start);
+			}
+			stats[to.ordinal()].sampleQueueDepth();
+		}
+
+		/*
+		 * tells every thread of a stage that nothing more is coming.
+		 */
+		private < T > void end(BlockingQueue < T > queue, Stage to, T end, StageStats from) throws InterruptedException {
+			for (int i = 0; i < threads[to.ordinal()]; i++) {
+				put(queue, to, end, from);
+			}
+		}
+
+		/*
+		 * the thread of a stage: a failure ends the whole build, the last thread to finish ends the next stage.
+		 */
+		private abstract class Worker implements Runnable {
+			private final Stage stage;
+
+			Worker(Stage stage) {
+				this.stage = stage;
+			}
+
+			public final void run() {
+				try {
+					work(stats[stage.ordinal()]);
+					if (running[stage.ordinal()].decrementAndGet() == 0) {
+						endNext(stats[stage.ordinal()]);
+					}
+				} catch (InterruptedException e) {
+					//the build failed elsewhere and is being shut down
+				} catch (CancellationException e) {
+					//same
+				} catch (Throwable t) {
+					fail(t);
+				}
+			}
+
+			abstract void work(StageStats s) throws Exception;
+
+			abstract void endNext(StageStats s) throws InterruptedException;
+		}
+
+		private final class Reader extends Worker {
+			Reader() {
+				super(Stage.READ);
+			}
+
+			void work(StageStats s) throws InterruptedException {
+				for (Batch b = reading.take(); b != Batch.END; b = reading.take()) {
+					long start = System.nanoTime();
+					long read = 0;
+					for (Document d : b.documents) {
+						if (d.size > MAX_READ_BYTES) {
+							continue;
+						}
+						try {
+							d.content = Files.readAllBytes(d.file.toPath());
+							read += d.content.length;
+						} catch (IOException e) {
+							e.printStackTrace();
+							d.readable = false;
+						}
+					}
+					s.documents.addAndGet(b.documents.size());
+					s.bytes.addAndGet(read);
+					s.busyNanos.addAndGet(System.nanoTime() - start);
+					put(analyzing, Stage.ANALYZE, b, s);
+				}
+			}
+
+			void endNext(StageStats s) throws InterruptedException {
+				end(analyzing, Stage.ANALYZE, Batch.END, s);
+			}
+		}
+
+		private final class Tokenizer extends Worker {
+			private final Analyzer analyzer = new Analyzer();
+			private final DocumentReader reader = new DocumentReader(StandardCharsets.UTF_8);
+
+			Tokenizer() {
+				super(Stage.ANALYZE);
+			}
+
+			void work(StageStats s) throws InterruptedException {
+				for (Batch b = analyzing.take(); b != Batch.END; b = analyzing.take()) {
+					long start = System.nanoTime();
+					b.text = new char[(int) Math.min(b.bytes + 16, 1 << 20)];
+					b.ends = new int[64];
+					for (Document d : b.documents) {
+						if (d.readable) {
+							analyze(b, d);
+						}
+						d.termsEnd = b.terms;
+					}
+					s.documents.addAndGet(b.documents.size());
+					s.bytes.addAndGet(b.bytes);
+					s.busyNanos.addAndGet(System.nanoTime() - start);
+					sequence(b, s);
+				}
+			}
+
+			private void analyze(Batch b, Document d) {
+				if (d.content != null) {
+					reader.read(ByteBuffer.wrap(d.content), analyzer, b);
+					d.content = null;
+					return;
+				}
+				int mark = b.terms;
+				try {
+					FileChannel channel = FileChannel.open(d.file.toPath(), StandardOpenOption.READ);
+					try {
+						reader.read(channel, analyzer, b);
+					} finally {
+						channel.close();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+					analyzer.end(b); //drops a token cut by the failure along with the rest
+					b.truncate(mark);
+					d.readable = false;
+				}
+			}
+
+			void endNext(StageStats s) throws InterruptedException {
+				for (BlockingQueue < Batch > queue : inverting) {
+					put(queue, Stage.INVERT, Batch.END, s);
+				}
+			}
+
+			/*
+			 * puts the batches back into discovery order: a batch analyzed ahead of its turn waits for the ones
+			 * before it; every run of batches goes to one inverter, the runs round robin.
+			 */
+			private void sequence(Batch b, StageStats s) throws InterruptedException {
+				synchronized (pending) {
+					pending.put(b.seq, b);
+					Batch ready;
+					while ((ready = pending.remove(next)) != null) {
+						put(inverting.get(next / run % inverting.size()), Stage.INVERT, ready, s);
+						next++;
+					}
+				}
+			}
+		}
+
+		private final class Inverter extends Worker {
+			private final BlockingQueue < Batch > queue;
+
+			Inverter(BlockingQueue < Batch > queue) {
+				super(Stage.INVERT);
+				this.queue = queue;
+			}
+
+			void work(StageStats s) throws InterruptedException {
+				IndexBuilder builder = null;
+				int partial = -1;
+				long documents = 0;
+				long bytes = 0;
+				for (Batch b = queue.take(); b != Batch.END; b = queue.take()) {
+					long start = System.nanoTime();
+					if (builder == null) {
+						builder = new IndexBuilder(positions);
+						partial = b.seq;
+						documents = 0;
+						bytes = 0;
+					}
+					int from = 0;
+					for (Document d : b.documents) {
+						if (d.readable) {
+							builder.addDocument(d.file, d.modified, d.size, b.text, b.ends, from, d.termsEnd);
+							documents++;
+						}
+						from = d.termsEnd;
+					}
+					bytes += b.bytes;
+					s.documents.addAndGet(b.documents.size());
+					s.bytes.addAndGet(b.bytes);
+					s.busyNanos.addAndGet(System.nanoTime() - start);
+					inFlight.release();
+					if (b.seq % run == run - 1 || builder.estimatedBytes() >= partialBytes) {
+						put(flushing, Stage.FLUSH, new Partial(partial, builder, documents, bytes), s);
+						builder = null;
+					}
+				}
+				if (builder != null) { //the last one, cut short by the end of the documents
+					put(flushing, Stage.FLUSH, new Partial(partial, builder, documents, bytes), s);
+				}
+			}
+
+			void endNext(StageStats s) throws InterruptedException {
+				end(flushing, Stage.FLUSH, Partial.END, s);
+			}
+		}
+
+		private final class Flusher extends Worker {
+			Flusher() {
+				super(Stage.FLUSH);
+			}
+
+			void work(StageStats s) throws InterruptedException, IOException {
+				for (Partial p = flushing.take(); p != Partial.END; p = flushing.take()) {
+					long start = System.nanoTime();
+					IndexSnapshot snapshot = p.builder.build();
+					if (runs == null) {
+						synchronized (snapshots) {
+							snapshots.put(p.index, snapshot);
+						}
+					} else {
+						File f = new File(runs, "run" + p.index);
+						new IndexWriter().write(snapshot, f);
+						synchronized (spilled) {
+							spilled.put(p.index, f);
+						}
+					}
+					s.documents.addAndGet(p.documents);
+					s.bytes.addAndGet(p.bytes);
+					s.busyNanos.addAndGet(System.nanoTime() - start);
+				}
+			}
+
+			void endNext(StageStats s) {
+				//the build waits for the pool to terminate
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * InvertedIndex is the read only view of a built index that queries run against. It is implemented by the
+ * in memory {@link IndexSnapshot} and by {@link MappedIndex}, which reads an index file in place.<br>
+ * Implementations are immutable and can be used by any number of threads at once.
+ * Term ids follow the alphabetical order of the words, document ids run from 0 to numDocs()-1.
+ */
+public interface InvertedIndex {
+
+	/**
+	 * @return number of documents
+	 */
+	int numDocs();
+
+	/**
+	 * @return number of distinct words
+	 */
+	int numTerms();
+
+	/**
+	 * @param term stemmed and filtered word
+	 * @return term id, or -1 if the word does not occur in any document
+	 */
+	int termId(String term);
+
+	/**
+	 * @param termId term id
+	 * @return the word with that id
+	 */
+	String term(int termId);
+
+	/**
+	 * @param termId term id
+	 * @return number of documents containing the word
+	 */
+	int documentFrequency(int termId);
+
+	/**
+	 * @param termId term id
+	 * @param reuse iterator returned by an earlier call on this index, or null
+	 * @return iterator over the postings of the word, positioned before the first one
+	 */
+	PostingIterator postings(int termId, PostingIterator reuse);
+
+	/**
+	 * @param docId document id
+	 * @return length norm of the document vector
+	 */
+	double norm(int docId);
+
+	/**
+	 * @param docId document id
+	 * @return number of terms in the document, repeated ones counted every time
+	 */
+	int documentLength(int docId);
+
+	/**
+	 * @return sum of the lengths of all documents
+	 */
+	long totalLength();
+
+	/**
+	 * @param docId document id
+	 * @return document name, the file name without extension
+	 */
+	String documentName(int docId);
+
+	/**
+	 * @param docId document id
+	 * @return absolute path of the document
+	 */
+	String documentPath(int docId);
+
+	/**
+	 * @param docId document id
+	 * @return modification time of the file when it was indexed, in milliseconds since the epoch
+	 */
+	long documentLastModified(int docId);
+
+	/**
+	 * @param docId document id
+	 * @return size in bytes of the file when it was indexed
+	 */
+	long documentFileSize(int docId);
+
+	/**
+	 * @return true if the index records term positions, which phrase and proximity queries need
+	 */
+	boolean hasPositions();
+}
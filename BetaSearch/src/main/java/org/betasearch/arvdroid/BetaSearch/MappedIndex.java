@@ -0,0 +1,237 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author avijayvargiy <br>
+ * MappedIndex serves queries directly from an index file written by {@link IndexWriter}.<br>
+ * Every section of the file is mapped read only with FileChannel.map and read in place with absolute gets:
+ * the dictionary is binary searched in the mapped term bytes and posting lists are decoded straight out of
+ * the mapped postings. Nothing is copied onto the heap, so opening is almost instant,
+ * the index can be larger than the heap and several JVMs on one host share the same page cache.<br>
+ * Only document names, paths and terms that are asked for are decoded into Strings.<br>
+ * Each section can be at most 2GB, i.e. roughly a billion compressed postings.
+ */
+public final class MappedIndex implements InvertedIndex {
+
+	private final int numDocs;
+	private final int numTerms;
+	private final long totalLength;
+	private final DoubleBuffer norms;
+	private final IntBuffer docLengths;
+	private final IntBuffer docOffsets;
+	private final ByteBuffer docBytes;
+	private final LongBuffer docFiles;
+	private final IntBuffer termOffsets;
+	private final ByteBuffer termBytes;
+	private final LongBuffer postingStarts;
+	private final IntBuffer docFreqs;
+	private final ByteBuffer postings;
+	private final ByteBuffer skips;
+	private final LongBuffer positionStarts; //empty in an index without positions
+	private final ByteBuffer positions;
+	private final IntBuffer skipStarts;
+
+	private MappedIndex(FileChannel channel, File file) throws IOException {
+		ByteBuffer header = map(channel, 0, IndexFormat.HEADER_SIZE, file);
+		if (header.getInt(0) != IndexFormat.MAGIC) {
+			throw new IOException("not an index file: " + file);
+		}
+		int version = header.getInt(4);
+		if (version != IndexFormat.VERSION) {
+			throw new IOException("unsupported index version " + version + " (expected " + IndexFormat.VERSION + "): " + file);
+		}
+		numDocs = header.getInt(8);
+		numTerms = header.getInt(12);
+		totalLength = header.getLong(24);
+		long sections[] = new long[IndexFormat.SECTIONS + 1];
+		for (int i = 0; i < IndexFormat.SECTIONS; i++) {
+			sections[i] = header.getLong(IndexFormat.SECTIONS_OFFSET + 8 * i);
+		}
+		sections[IndexFormat.SECTIONS] = channel.size();
+		norms = section(channel, sections, IndexFormat.NORMS, file).asDoubleBuffer();
+		docLengths = section(channel, sections, IndexFormat.DOC_LENGTHS, file).asIntBuffer();
+		docOffsets = section(channel, sections, IndexFormat.DOC_OFFSETS, file).asIntBuffer();
+		docBytes = section(channel, sections, IndexFormat.DOC_BYTES, file);
+		docFiles = section(channel, sections, IndexFormat.DOC_FILES, file).asLongBuffer();
+		termOffsets = section(channel, sections, IndexFormat.TERM_OFFSETS, file).asIntBuffer();
+		termBytes = section(channel, sections, IndexFormat.TERM_BYTES, file);
+		postingStarts = section(channel, sections, IndexFormat.POSTING_STARTS, file).asLongBuffer();
+		docFreqs = section(channel, sections, IndexFormat.DOC_FREQS, file).asIntBuffer();
+		postings = section(channel, sections, IndexFormat.POSTINGS, file);
+		skips = section(channel, sections, IndexFormat.SKIPS, file);
+		positionStarts = section(channel, sections, IndexFormat.POSITION_STARTS, file).asLongBuffer();
+		positions = section(channel, sections, IndexFormat.POSITIONS, file);
+		skipStarts = section(channel, sections, IndexFormat.SKIP_STARTS, file).asIntBuffer();
+	}
+
+	/**
+	 * maps an index file. The file must not be modified while it is mapped; {@link IndexWriter} replaces
+	 * files by renaming, which leaves existing mappings intact.
+	 * @param file index file
+	 * @return the mapped index
+	 * @throws IOException if the file cannot be mapped or is not an index of the current version
+	 */
+	public static MappedIndex open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			//the mappings stay valid after the channel is closed
+			return new MappedIndex(raf.getChannel(), file);
+		} finally {
+			raf.close();
+		}
+	}
+
+	public int numDocs() {
+		return numDocs;
+	}
+
+	public int numTerms() {
+		return numTerms;
+	}
+
+	/**
+	 * binary search over the sorted terms, comparing the mapped UTF-8 bytes against the word without decoding them.
+	 */
+	public int termId(String term) {
+		int low = 0;
+		int high = numTerms - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = FrontCodedTerms.compare(termBytes, termOffsets.get(mid), termOffsets.get(mid + 1), term);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	public String term(int termId) {
+		return string(termBytes, termOffsets.get(termId), termOffsets.get(termId + 1));
+	}
+
+	public int documentFrequency(int termId) {
+		return docFreqs.get(termId);
+	}
+
+	public PostingIterator postings(int termId, PostingIterator reuse) {
+		MappedPostingIterator it = reuse instanceof MappedPostingIterator ? (MappedPostingIterator) reuse : new MappedPostingIterator();
+		int positionStart = hasPositions() ? (int) positionStarts.get(termId) : -1;
+		int firstSkip = skipStarts.get(termId);
+		it.reset(postings, skips, positions, (int) postingStarts.get(termId), docFreqs.get(termId), positionStart, firstSkip, skipStarts.get(termId + 1) - firstSkip);
+		return it;
+	}
+
+	public double norm(int docId) {
+		return norms.get(docId);
+	}
+
+	public int documentLength(int docId) {
+		return docLengths.get(docId);
+	}
+
+	public long totalLength() {
+		return totalLength;
+	}
+
+	public String documentName(int docId) {
+		return string(docBytes, docOffsets.get(2 * docId), docOffsets.get(2 * docId + 1));
+	}
+
+	public String documentPath(int docId) {
+		return string(docBytes, docOffsets.get(2 * docId + 1), docOffsets.get(2 * docId + 2));
+	}
+
+	public long documentLastModified(int docId) {
+		return docFiles.get(2 * docId);
+	}
+
+	public long documentFileSize(int docId) {
+		return docFiles.get(2 * docId + 1);
+	}
+
+	public boolean hasPositions() {
+		return positionStarts.capacity() > 0;
+	}
+
+	private static String string(ByteBuffer bytes, int from, int to) {
+		byte copy[] = new byte[to - from];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = bytes.get(from + i);
+		}
+		return new String(copy, StandardCharsets.UTF_8);
+	}
+
+	private static ByteBuffer section(FileChannel channel, long sections[], int section, File file) throws IOException {
+		return map(channel, sections[section], sections[section + 1] - sections[section], file);
+	}
+
+	private static ByteBuffer map(FileChannel channel, long position, long size, File file) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("index section larger than 2GB: " + file);
+		}
+		if (position + size > channel.size()) {
+			throw new IOException("truncated index file: " + file);
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	/**
+	 * iterator decoding one posting list inside the mapped postings with absolute gets. The skip data of the list
+	 * is copied into arrays the iterator reuses, so it allocates nothing once they are large enough.
+	 */
+	static final class MappedPostingIterator extends BlockPostingIterator {
+		private ByteBuffer postings;
+		private ByteBuffer positions;
+
+		MappedPostingIterator() {
+			blockLastDoc = new int[0];
+			blockEnd = new int[0];
+			blockMaxTf = new int[0];
+			blockMaxImpact = new double[0];
+			blockPositionEnd = new int[0];
+		}
+
+		void reset(ByteBuffer postings, ByteBuffer skips, ByteBuffer positions, int start, int size, int positionStart, int firstSkip, int skipCount) {
+			this.postings = postings;
+			this.positions = positions;
+			if (blockLastDoc.length < skipCount) {
+				blockLastDoc = new int[skipCount];
+				blockEnd = new int[skipCount];
+				blockMaxTf = new int[skipCount];
+				blockMaxImpact = new double[skipCount];
+				blockPositionEnd = new int[skipCount];
+			}
+			for (int b = 0; b < skipCount; b++) {
+				int entry = (firstSkip + b) * IndexFormat.SKIP_ENTRY_SIZE;
+				blockLastDoc[b] = skips.getInt(entry);
+				blockEnd[b] = start + skips.getInt(entry + 4);
+				blockMaxTf[b] = skips.getInt(entry + 8);
+				blockMaxImpact[b] = skips.getDouble(entry + 12);
+				blockPositionEnd[b] = positionStart + skips.getInt(entry + 20);
+			}
+			blocks = skipCount;
+			start(start, size, positionStart);
+		}
+
+		byte byteAt(int position) {
+			return postings.get(position);
+		}
+
+		byte positionByteAt(int position) {
+			return positions.get(position);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author avijayvargiy <br>
+ * MergeScheduler merges the segments of a SearchEngine in the background, one merge at a time, on a single low
+ * priority daemon thread. The {@link TieredMergePolicy} picks the segments and {@link IndexMerger} writes the
+ * merged segment, throttled by a {@link RateLimiter} so that queries keep their memory bandwidth.<br>
+ * Merging does not hold the engine lock; queries and updates carry on with the segments being merged. Once the
+ * merged segment is ready it replaces its sources under the lock. Documents deleted from the sources while the
+ * merge ran are deleted from the merged segment as well, and a merge whose sources have disappeared, because the
+ * index was rebuilt or loaded meanwhile, is dropped.<br>
+ * A merge that fails stops the background merging until the next {@link #maybeMerge()}; the error is kept and
+ * thrown by {@link #awaitIdle(long)}.
+ */
+public class MergeScheduler implements Closeable {
+
+	private final SearchEngine engine;
+	private volatile TieredMergePolicy policy = new TieredMergePolicy();
+	private volatile double mbPerSecond = 20;
+	private final AtomicBoolean pending = new AtomicBoolean();
+	private ExecutorService executor;
+	private int merges;
+	private volatile RuntimeException failure;
+
+	MergeScheduler(SearchEngine engine) {
+		this.engine = engine;
+	}
+
+	/**
+	 * asks the policy for merges in the background; returns at once.
+	 */
+	public synchronized void maybeMerge() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "segment merger");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+		}
+		if (executor.isShutdown() || !pending.compareAndSet(false, true)) {
+			return; //a run is already queued and will see the latest segments
+		}
+		executor.execute(new Runnable() {
+			public void run() {
+				pending.set(false);
+				mergeAll();
+			}
+		});
+	}
+
+	/*
+	 * runs the merges the policy asks for until it is satisfied.
+	 */
+	private void mergeAll() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				List < Segment > sources;
+				synchronized (engine) {
+					SegmentedIndex current = engine.currentSegments();
+					sources = current == null ? null : policy.findMerge(current);
+				}
+				if (sources == null) {
+					return;
+				}
+				merge(sources);
+			}
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+	}
+
+	private void merge(List < Segment > sources) {
+		List < InvertedIndex > parts = new ArrayList < InvertedIndex > (sources.size());
+		List < BitSet > deletions = new ArrayList < BitSet > (sources.size());
+		int docMaps[][] = new int[sources.size()][]; //source doc -> merged doc, as IndexMerger numbers them
+		int next = 0;
+		for (int s = 0; s < sources.size(); s++) {
+			Segment source = sources.get(s);
+			parts.add(source.getIndex());
+			deletions.add(source.getDeletions());
+			docMaps[s] = new int[source.maxDoc()];
+			for (int doc = 0; doc < source.maxDoc(); doc++) {
+				docMaps[s][doc] = source.isDeleted(doc) ? -1 : next++;
+			}
+		}
+		IndexSnapshot merged = new IndexMerger().merge(parts, deletions, new RateLimiter(mbPerSecond));
+		if (Thread.currentThread().isInterrupted()) {
+			return; //closed while merging
+		}
+		synchronized (engine) {
+			SegmentedIndex current = engine.currentSegments();
+			if (current == null) {
+				return;
+			}
+			int positions[] = new int[sources.size()];
+			BitSet deletedMeanwhile = new BitSet();
+			for (int s = 0; s < sources.size(); s++) {
+				positions[s] = find(current, sources.get(s).getName());
+				if (positions[s] < 0) {
+					return; //the index was replaced while merging
+				}
+				Segment now = current.segment(positions[s]);
+				for (int doc = nextDeleted(now, 0); doc >= 0; doc = nextDeleted(now, doc + 1)) {
+					if (!sources.get(s).isDeleted(doc)) {
+						deletedMeanwhile.set(docMaps[s][doc]);
+					}
+				}
+			}
+			Segment result = new Segment(engine.newSegmentName(), merged);
+			if (!deletedMeanwhile.isEmpty()) {
+				result = result.withDeletions(deletedMeanwhile);
+			}
+			List < Segment > segments = new ArrayList < Segment > (current.segmentCount());
+			boolean placed = false;
+			for (int i = 0; i < current.segmentCount(); i++) {
+				if (!contains(positions, i)) {
+					segments.add(current.segment(i));
+				} else if (!placed) {
+					segments.add(result); //the merged segment takes the place of its first source
+					placed = true;
+				}
+			}
+			engine.publish(new SegmentedIndex(segments.toArray(new Segment[segments.size()])));
+			merges++;
+		}
+	}
+
+	private static int find(SegmentedIndex index, String name) {
+		for (int i = 0; i < index.segmentCount(); i++) {
+			if (index.segment(i).getName().equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int nextDeleted(Segment segment, int from) {
+		BitSet deleted = segment.getDeletions();
+		return deleted == null ? -1 : deleted.nextSetBit(from);
+	}
+
+	private static boolean contains(int positions[], int i) {
+		for (int p : positions) {
+			if (p == i) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public TieredMergePolicy getPolicy() {
+		return policy;
+	}
+
+	public void setPolicy(TieredMergePolicy policy) {
+		this.policy = policy;
+	}
+
+	public double getMBPerSecond() {
+		return mbPerSecond;
+	}
+
+	/**
+	 * @param mbPerSecond postings a merge may read per second, in megabytes; applies from the next merge on
+	 */
+	public void setMBPerSecond(double mbPerSecond) {
+		if (mbPerSecond <= 0) {
+			throw new IllegalArgumentException("rate must be positive: " + mbPerSecond);
+		}
+		this.mbPerSecond = mbPerSecond;
+	}
+
+	/**
+	 * @return number of merges completed so far
+	 */
+	public int getMergeCount() {
+		synchronized (engine) {
+			return merges;
+		}
+	}
+
+	/**
+	 * waits until no merge is queued or running.
+	 * @param timeoutMillis how long to wait at most
+	 * @return true if the scheduler is idle
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws IllegalStateException if a merge failed since the last call, with the error of the merge as cause
+	 */
+	public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+		Future < ? > marker;
+		synchronized (this) {
+			if (executor == null || executor.isShutdown()) {
+				return true;
+			}
+			marker = executor.submit(new Runnable() {
+				public void run() {
+					//runs after everything queued before it, the executor has a single thread
+				}
+			});
+		}
+		try {
+			marker.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			return false;
+		} catch (ExecutionException e) {
+			//the marker does nothing
+		}
+		RuntimeException e = failure;
+		if (e != null) {
+			failure = null;
+			throw new IllegalStateException("background merge failed", e);
+		}
+		return true;
+	}
+
+	/**
+	 * stops the merge thread; a merge in progress is abandoned.
+	 */
+	public synchronized void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author avijayvargiy <br>
+ * ParallelIndexBuilder indexes a set of documents with a pool of worker threads.<br>
+ * The documents are cut into contiguous chunks (a few per worker, so that a chunk of large files does not
+ * leave the other workers idle). Every chunk is tokenized and stemmed into its own partial index by one worker,
+ * then the partials are merged in chunk order with {@link IndexMerger}. Document ids therefore come out
+ * exactly as in a single threaded build.<br>
+ * A directory is indexed in stages by an {@link IndexingPipeline} instead, which starts on the documents while the
+ * tree is still being walked.
+ */
+public class ParallelIndexBuilder {
+
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final int threads;
+	private final boolean positions;
+
+	/**
+	 * @param threads number of worker threads
+	 */
+	public ParallelIndexBuilder(int threads) {
+		this(threads, false);
+	}
+
+	/**
+	 * @param threads number of worker threads
+	 * @param positions whether to record the positions of the terms
+	 */
+	public ParallelIndexBuilder(int threads, boolean positions) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1: " + threads);
+		}
+		this.threads = threads;
+		this.positions = positions;
+	}
+
+	/**
+	 * @param files documents to index, their order gives the document ids
+	 * @return the merged index
+	 */
+	public IndexSnapshot build(File files[]) {
+		int chunks = Math.max(1, Math.min(files.length, threads * CHUNKS_PER_THREAD));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List < Future < IndexSnapshot >> partials = new ArrayList < Future < IndexSnapshot >> (chunks);
+			for (int c = 0; c < chunks; c++) {
+				int from = (int)((long) files.length * c / chunks);
+				int to = (int)((long) files.length * (c + 1) / chunks);
+				partials.add(pool.submit(partial(Arrays.asList(files).subList(from, to))));
+			}
+			return merge(partials);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/*
+	 * a task indexing a run of documents into a partial index.
+	 */
+	private Callable < IndexSnapshot > partial(final List < File > files) {
+		return new Callable < IndexSnapshot > () {
+			public IndexSnapshot call() {
+				IndexBuilder builder = new IndexBuilder(positions);
+				for (File file : files) {
+					try {
+						builder.addDocument(file);
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+				return builder.build();
+			}
+		};
+	}
+
+	/*
+	 * waits for the partials and merges them in order.
+	 */
+	private static IndexSnapshot merge(List < Future < IndexSnapshot >> partials) {
+		try {
+			List < IndexSnapshot > parts = new ArrayList < IndexSnapshot > (partials.size());
+			for (Future < IndexSnapshot > partial : partials) {
+				parts.add(partial.get());
+			}
+			return new IndexMerger().merge(parts);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("index build interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("index build failed", e.getCause());
+		}
+	}
+}
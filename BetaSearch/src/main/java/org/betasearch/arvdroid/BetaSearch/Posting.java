@@ -1,11 +0,0 @@
-package org.betasearch.arvdroid.BetaSearch;
-
-/**
- * @author avijayvargiy
- * Posting represents individual postings in a posting list of dictionary words
- * it constitutes two variables document name and term frequency.
- */
-public class Posting{
-	String documentName; //document name which represents doc name 
-	int termFrequency; //term frequency represents the no of times that particular word occurs in that document
-}
@@ -0,0 +1,65 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * PostingIterator walks the postings of one term in increasing document id order.<br>
+ * Implementations are meant to be reused: they are reset onto the next posting list instead of being allocated per term.
+ * <pre>
+ * {@code
+ *  for (int doc = it.nextDoc(); doc != PostingIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+ *      it.termFrequency();
+ *  }
+ * }
+ * </pre>
+ * Long posting lists carry skip data: {@link #advance(int)} jumps over blocks of postings that cannot hold the
+ * target, and the block bounds (highest term frequency, highest cosine impact (1+log tf)/norm(d)) let a top-k scorer
+ * skip documents that cannot score high enough. A list without skip data reports Integer.MAX_VALUE and infinity
+ * as its bounds, which bound nothing.<br>
+ * An index built with positions also records where in the document every occurrence is, see {@link #nextPosition()}.
+ * Positions are only decoded when asked for, so walking the documents costs the same with or without them.
+ */
+public interface PostingIterator extends DocIterator {
+
+	/**
+	 * makes the block bounds describe the block that would hold target, without decoding any posting.
+	 * @param target document id, not less than the current one
+	 */
+	void advanceShallow(int target);
+
+	/**
+	 * @return last document id of the block the bounds describe, NO_MORE_DOCS if that is the rest of the list
+	 */
+	int blockLastDoc();
+
+	/**
+	 * @return highest term frequency in the block the bounds describe
+	 */
+	int blockMaxTermFrequency();
+
+	/**
+	 * @return highest (1+log tf)/norm(d) in the block the bounds describe
+	 */
+	double blockMaxImpact();
+
+	/**
+	 * @return highest term frequency in the whole list
+	 */
+	int maxTermFrequency();
+
+	/**
+	 * @return highest (1+log tf)/norm(d) in the whole list
+	 */
+	double maxImpact();
+
+	/**
+	 * @return number of times the term occurs in the current document
+	 */
+	int termFrequency();
+
+	/**
+	 * decodes the next position of the term in the current document; can be called termFrequency() times per document.
+	 * @return position of the next occurrence, counted in terms from the start of the document, in increasing order
+	 * @throws IllegalStateException if the index was built without positions
+	 */
+	int nextPosition();
+}
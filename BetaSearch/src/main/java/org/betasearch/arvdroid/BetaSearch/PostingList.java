@@ -0,0 +1,285 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+
+/**
+ * @author avijayvargiy <br>
+ * PostingList holds the postings of one dictionary word compressed in a single growable byte array:
+ * for every document, in increasing id order, the gap to the previous document id followed by the term
+ * frequency, both {@link VByte} encoded.<br>
+ * Most gaps and frequencies fit in one byte, so a posting usually takes two bytes instead of the eight of a pair of
+ * ints, and a query reads the list front to back out of one array.<br>
+ * Once the norms of the documents are known, {@link #buildSkips(DocumentTable)} adds skip data to lists longer
+ * than {@link #BLOCK_SIZE}, see {@link BlockPostingIterator}.<br>
+ * A positional list also records where the term occurs in every document, in a second byte array so that reading
+ * the postings never has to step over them: for every posting, the positions of its occurrences as gaps to the
+ * previous one (the first position itself), VByte encoded.
+ */
+public class PostingList {
+
+	/**
+	 * number of postings per block of skip data
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private byte bytes[];
+	private final int offset; //start of the list in bytes
+	private int end; //end of the encoded postings in bytes
+	private int size;
+	private int lastDocId;
+	private int lastTermFrequency;
+	private int lastTermFrequencyPosition; //where the last frequency is encoded, it can still be incremented
+	private final boolean readOnly;
+
+	//positions, null for a list without
+	private byte positions[];
+	private final int positionsOffset;
+	private int positionsEnd;
+	private int lastPosition;
+
+	//skip data, null for a list of at most BLOCK_SIZE postings
+	private int blockLastDoc[];
+	private int blockEnd[];
+	private int blockMaxTf[];
+	private double blockMaxImpact[];
+	private int blockPositionEnd[];
+
+	public PostingList() {
+		this(false);
+	}
+
+	/**
+	 * @param positions whether to record the positions of the occurrences
+	 */
+	public PostingList(boolean positions) {
+		this.bytes = new byte[INITIAL_CAPACITY];
+		this.offset = 0;
+		this.readOnly = false;
+		this.positions = positions ? new byte[INITIAL_CAPACITY] : null;
+		this.positionsOffset = 0;
+	}
+
+	/**
+	 * wraps postings already encoded, for example read back from an index file. The array is not copied
+	 * and the list cannot be appended to.
+	 * @param bytes array holding the encoded postings
+	 * @param offset start of the postings in bytes
+	 * @param end end of the postings in bytes
+	 * @param size number of postings encoded
+	 */
+	public PostingList(byte bytes[], int offset, int end, int size) {
+		this(bytes, offset, end, size, null, 0, 0);
+	}
+
+	/**
+	 * wraps postings and positions already encoded. Neither array is copied and the list cannot be appended to.
+	 * @param bytes array holding the encoded postings
+	 * @param offset start of the postings in bytes
+	 * @param end end of the postings in bytes
+	 * @param size number of postings encoded
+	 * @param positions array holding the encoded positions, null if the list has none
+	 * @param positionsOffset start of the positions in positions
+	 * @param positionsEnd end of the positions in positions
+	 */
+	public PostingList(byte bytes[], int offset, int end, int size, byte positions[], int positionsOffset, int positionsEnd) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.end = end;
+		this.size = size;
+		this.readOnly = true;
+		this.positions = positions;
+		this.positionsOffset = positionsOffset;
+		this.positionsEnd = positionsEnd;
+	}
+
+	/**
+	 * counts one more occurrence of the term in document docId.
+	 * Documents have to be added in increasing id order.
+	 * @param docId id of the document the term occurred in
+	 * @return true if this is the first occurrence of the term in that document
+	 */
+	public boolean addOccurrence(int docId) {
+		if (size > 0 && lastDocId == docId) {
+			//the frequency is the last thing encoded, so growing it only rewrites the tail
+			lastTermFrequency++;
+			end = VByte.write(bytes, lastTermFrequencyPosition, lastTermFrequency);
+			return false;
+		}
+		add(docId, 1);
+		return true;
+	}
+
+	/**
+	 * counts one more occurrence of the term in document docId and records where it occurred.
+	 * Documents have to be added in increasing id order, positions within a document in increasing order.
+	 * @param docId id of the document the term occurred in
+	 * @param position position of the occurrence, counted in terms from the start of the document
+	 * @return true if this is the first occurrence of the term in that document
+	 */
+	public boolean addOccurrence(int docId, int position) {
+		boolean first = addOccurrence(docId);
+		addPosition(position);
+		return first;
+	}
+
+	/**
+	 * appends a posting, docId has to be greater than the last one added.
+	 * @param docId document id
+	 * @param termFrequency number of occurrences of the term in that document
+	 */
+	public void add(int docId, int termFrequency) {
+		if (readOnly) {
+			throw new IllegalStateException("posting list is read only");
+		}
+		if (end + 2 * VByte.MAX_BYTES > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(end + 2 * VByte.MAX_BYTES, bytes.length + (bytes.length >> 1)));
+		}
+		end = VByte.write(bytes, end, size == 0 ? docId : docId - lastDocId);
+		lastTermFrequencyPosition = end;
+		end = VByte.write(bytes, end, termFrequency);
+		lastDocId = docId;
+		lastTermFrequency = termFrequency;
+		lastPosition = 0;
+		size++;
+	}
+
+	/**
+	 * appends the next position of the last posting added; a posting gets as many as its term frequency.
+	 * @param position position of the occurrence, at least the previous one of the same posting
+	 */
+	public void addPosition(int position) {
+		if (positions == null) {
+			throw new IllegalStateException("posting list has no positions");
+		}
+		if (readOnly) {
+			throw new IllegalStateException("posting list is read only");
+		}
+		if (positionsEnd + VByte.MAX_BYTES > positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(positionsEnd + VByte.MAX_BYTES, positions.length + (positions.length >> 1)));
+		}
+		positionsEnd = VByte.write(positions, positionsEnd, position - lastPosition);
+		lastPosition = position;
+	}
+
+	/**
+	 * @return true if the list records positions
+	 */
+	public boolean hasPositions() {
+		return positions != null;
+	}
+
+	/**
+	 * @return number of postings, i.e. the document frequency of the term
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of bytes the encoded postings take
+	 */
+	public int byteSize() {
+		return end - offset;
+	}
+
+	/**
+	 * @return number of bytes the encoded positions take, 0 for a list without
+	 */
+	public int positionsByteSize() {
+		return positionsEnd - positionsOffset;
+	}
+
+	/**
+	 * @return term frequency of the last posting added
+	 */
+	public int lastTermFrequency() {
+		return lastTermFrequency;
+	}
+
+	/**
+	 * releases the spare capacity once the list is complete.
+	 */
+	public void trim() {
+		if (!readOnly) {
+			bytes = Arrays.copyOf(bytes, end + VByte.MAX_BYTES); //room to grow the last frequency in place
+			if (positions != null) {
+				positions = Arrays.copyOf(positions, positionsEnd);
+			}
+		}
+	}
+
+	/**
+	 * computes the skip data of a complete list; a list of at most BLOCK_SIZE postings gets none.
+	 * @param documents norms of the documents in the list
+	 */
+	public void buildSkips(DocumentTable documents) {
+		if (size <= BLOCK_SIZE) {
+			blockLastDoc = null;
+			return;
+		}
+		int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int lastDoc[] = new int[blocks];
+		int end[] = new int[blocks];
+		int maxTf[] = new int[blocks];
+		double maxImpact[] = new double[blocks];
+		int positionEnd[] = positions == null ? null : new int[blocks];
+		BytesIterator it = new BytesIterator();
+		it.reset(this); //no skip data yet, decodes every posting
+		for (int b = 0; b < blocks; b++) {
+			for (int i = 0; i < BLOCK_SIZE && it.nextDoc() != PostingIterator.NO_MORE_DOCS; i++) {
+				lastDoc[b] = it.docId();
+				maxTf[b] = Math.max(maxTf[b], it.termFrequency());
+				maxImpact[b] = Math.max(maxImpact[b], CosineSimilarity.impact(it.termFrequency(), documents.norm(it.docId())));
+			}
+			end[b] = it.position();
+			if (positionEnd != null) {
+				positionEnd[b] = it.endOfPositions();
+			}
+		}
+		blockLastDoc = lastDoc;
+		blockEnd = end;
+		blockMaxTf = maxTf;
+		blockMaxImpact = maxImpact;
+		blockPositionEnd = positionEnd;
+	}
+
+	/**
+	 * @param reuse iterator to reset onto this list, or null to get a new one
+	 * @return iterator positioned before the first posting
+	 */
+	public BytesIterator iterator(BytesIterator reuse) {
+		BytesIterator it = reuse == null ? new BytesIterator() : reuse;
+		it.reset(this);
+		return it;
+	}
+
+	/**
+	 * allocation free iterator decoding a PostingList.
+	 */
+	public static final class BytesIterator extends BlockPostingIterator {
+		private byte bytes[];
+		private byte positions[];
+
+		public void reset(PostingList list) {
+			bytes = list.bytes;
+			blockLastDoc = list.blockLastDoc;
+			blockEnd = list.blockEnd;
+			blockMaxTf = list.blockMaxTf;
+			blockMaxImpact = list.blockMaxImpact;
+			blockPositionEnd = list.blockPositionEnd;
+			blocks = list.blockLastDoc == null ? 0 : list.blockLastDoc.length;
+			positions = list.positions;
+			start(list.offset, list.size, positions == null ? -1 : list.positionsOffset);
+		}
+
+		byte byteAt(int position) {
+			return bytes[position];
+		}
+
+		byte positionByteAt(int position) {
+			return positions[position];
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * ProximityIterator returns the documents in which some occurrence of every term falls at the right place: for a
+ * phrase, one right after the other; for NEAR/k, all within k positions of each other, in any order.<br>
+ * Both are the same test. Term i at position p counts as p - offset[i] (a phrase uses offsets 0, 1, 2, ... and NEAR
+ * all 0) and a document matches if one value per term can be picked so that the largest and the smallest are at
+ * most window apart (0 for a phrase, k for NEAR/k).<br>
+ * The documents holding all the terms are found by a {@link ConjunctionIterator} first, and only for those the
+ * positions are decoded, so the positions of all other documents are never touched.
+ */
+public class ProximityIterator implements DocIterator {
+
+	private final PostingIterator terms[];
+	private final int offsets[];
+	private final int window;
+	private final ConjunctionIterator candidates;
+	private final int positions[][]; //per term, the values p - offset of the current candidate
+	private final int counts[];
+	private final int next[]; //per term, the value considered next while sliding the window
+	private int docId = -1;
+
+	/**
+	 * @param terms posting iterators of an index with positions, positioned before their first document
+	 * @param offsets where each term is expected relative to the first one
+	 * @param window how far apart the terms may be once their offsets are taken off
+	 */
+	public ProximityIterator(PostingIterator terms[], int offsets[], int window) {
+		this.terms = terms.clone();
+		this.offsets = offsets.clone();
+		this.window = window;
+		this.candidates = new ConjunctionIterator(terms, new DocIterator[0]);
+		this.positions = new int[terms.length][8];
+		this.counts = new int[terms.length];
+		this.next = new int[terms.length];
+	}
+
+	public int nextDoc() {
+		return docId = confirm(candidates.nextDoc());
+	}
+
+	public int advance(int target) {
+		if (docId >= target) {
+			return docId;
+		}
+		return docId = confirm(candidates.advance(target));
+	}
+
+	/*
+	 * first candidate from doc on whose positions match.
+	 */
+	private int confirm(int doc) {
+		while (doc != NO_MORE_DOCS && !matches()) {
+			doc = candidates.nextDoc();
+		}
+		return doc;
+	}
+
+	/*
+	 * every term iterator is on the candidate: decodes their positions and slides a window over them, always moving
+	 * the term with the smallest value, until the values are close enough or a term runs out.
+	 */
+	private boolean matches() {
+		for (int i = 0; i < terms.length; i++) {
+			int tf = terms[i].termFrequency();
+			if (positions[i].length < tf) {
+				positions[i] = new int[Math.max(tf, positions[i].length * 2)];
+			}
+			for (int j = 0; j < tf; j++) {
+				positions[i][j] = terms[i].nextPosition() - offsets[i];
+			}
+			counts[i] = tf;
+			next[i] = 0;
+		}
+		while (true) {
+			int min = 0;
+			int max = Integer.MIN_VALUE;
+			for (int i = 0; i < terms.length; i++) {
+				int value = positions[i][next[i]];
+				if (value < positions[min][next[min]]) {
+					min = i;
+				}
+				max = Math.max(max, value);
+			}
+			if ((long) max - positions[min][next[min]] <= window) {
+				return true;
+			}
+			if (++next[min] == counts[min]) {
+				return false;
+			}
+		}
+	}
+
+	public int docId() {
+		return docId;
+	}
+
+	public long cost() {
+		return candidates.cost();
+	}
+}
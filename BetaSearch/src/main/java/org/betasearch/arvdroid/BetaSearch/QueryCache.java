@@ -0,0 +1,243 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author avijayvargiy <br>
+ * QueryCache keeps the results of recent queries so that a query asked again, even worded differently, is answered
+ * without touching a posting list.<br>
+ * Queries are keyed by their analyzed terms, sorted and counted, so "Rings of the ring" and "ring rings" share an
+ * entry, together with the number of results asked for and the ranking function. The least recently used entries
+ * are evicted once the cache holds more than its maximum number of entries or its estimated size goes over the
+ * maximum number of bytes.<br>
+ * Results are only valid for the segments they were computed on: {@link #invalidate(SegmentedIndex)} empties the
+ * cache when new segments are published, and results of a query that was still running on the old segments are
+ * not stored. Thread safe.
+ */
+public class QueryCache {
+
+	/**
+	 * default maximum number of cached queries
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+	/**
+	 * default maximum estimated size of the cached results, 16 MB
+	 */
+	public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+	//rough per object costs of the size estimate: header and fields, and a String beside its characters
+	private static final int ENTRY_OVERHEAD = 96;
+	private static final int RESULT_OVERHEAD = 64;
+	private static final int STRING_OVERHEAD = 40;
+
+	private final LinkedHashMap < Key, Entry > entries = new LinkedHashMap < Key, Entry > (16, 0.75f, true); //access order
+	private int maxEntries;
+	private long maxBytes;
+	private long bytes;
+	private SegmentedIndex segments; //the segments the cached results belong to
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public QueryCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * @param maxEntries maximum number of cached queries, 0 disables the cache
+	 * @param maxBytes maximum estimated size of the cached results
+	 */
+	public QueryCache(int maxEntries, long maxBytes) {
+		setLimits(maxEntries, maxBytes);
+	}
+
+	/**
+	 * changes the bounds, evicting what no longer fits.
+	 * @param maxEntries maximum number of cached queries, 0 disables the cache
+	 * @param maxBytes maximum estimated size of the cached results
+	 */
+	public synchronized void setLimits(int maxEntries, long maxBytes) {
+		if (maxEntries < 0 || maxBytes < 0) {
+			throw new IllegalArgumentException("limits must not be negative: " + maxEntries + ", " + maxBytes);
+		}
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		evict();
+	}
+
+	public synchronized int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @param current segments the query runs against
+	 * @param key normalized query
+	 * @return the cached results, a copy the caller may change, or null on a miss
+	 */
+	synchronized SearchResult[] get(SegmentedIndex current, Key key) {
+		Entry entry = current == segments ? entries.get(key) : null;
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.results.clone();
+	}
+
+	/**
+	 * stores the results of a query, unless they were computed on segments that are no longer the published ones.
+	 * @param current segments the query ran against
+	 * @param key normalized query
+	 * @param results results of the query, copied
+	 */
+	synchronized void put(SegmentedIndex current, Key key, SearchResult results[]) {
+		if (current != segments || maxEntries == 0) {
+			return;
+		}
+		Entry entry = new Entry(results.clone(), estimate(key, results));
+		if (entry.bytes > maxBytes) {
+			return; //would evict everything else and still not fit
+		}
+		Entry old = entries.put(key, entry);
+		if (old != null) {
+			bytes -= old.bytes;
+		}
+		bytes += entry.bytes;
+		evict();
+	}
+
+	/**
+	 * drops every cached result; from now on only results computed on published are stored.
+	 * @param published segments queries run against from now on
+	 */
+	synchronized void invalidate(SegmentedIndex published) {
+		entries.clear();
+		bytes = 0;
+		segments = published;
+	}
+
+	/**
+	 * drops every cached result, for example after the ranking function changed.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return number of cached queries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return estimated size of the cached results in bytes
+	 */
+	public synchronized long byteSize() {
+		return bytes;
+	}
+
+	/**
+	 * @return number of queries answered from the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of queries that had to be run
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of entries dropped to stay within the bounds, invalidations not counted
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized String toString() {
+		return "QueryCache(" + entries.size() + " entries, " + bytes + " bytes, " + hits + " hits, " + misses
+				+ " misses, " + evictions + " evictions)";
+	}
+
+	/*
+	 * drops the least recently used entries until both bounds hold.
+	 */
+	private void evict() {
+		Iterator < Map.Entry < Key, Entry > > it = entries.entrySet().iterator();
+		while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+			bytes -= it.next().getValue().bytes;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/*
+	 * rough heap footprint of a cached entry.
+	 */
+	private static long estimate(Key key, SearchResult results[]) {
+		long size = ENTRY_OVERHEAD + STRING_OVERHEAD + 2L * key.query.length() + 8L * results.length;
+		for (SearchResult result : results) {
+			size += RESULT_OVERHEAD + 2 * STRING_OVERHEAD + 2L * (result.getName().length() + result.getPath().length());
+		}
+		return size;
+	}
+
+	/**
+	 * a normalized query: its analyzed form, the number of results and the ranking function.
+	 */
+	static final class Key {
+		final String query;
+		final int k;
+		final Similarity similarity; //compared by identity, a changed similarity scores differently
+		private final int hash;
+
+		/**
+		 * @param query normalized query, equal for queries that must get the same results
+		 * @param k number of results asked for
+		 * @param similarity ranking function
+		 */
+		Key(String query, int k, Similarity similarity) {
+			this.query = query;
+			this.k = k;
+			this.similarity = similarity;
+			this.hash = (query.hashCode() * 31 + k) * 31 + System.identityHashCode(similarity);
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return k == other.k && similarity == other.similarity && query.equals(other.query);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/*
+	 * cached results with their estimated size.
+	 */
+	private static final class Entry {
+		final SearchResult results[];
+		final long bytes;
+
+		Entry(SearchResult results[], long bytes) {
+			this.results = results;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * QueryContext is the scratch state one thread needs to run queries against one published set of segments: the
+ * score accumulators (reused segment after segment), the top-k heap, the posting iterators and the analyzer for the
+ * query text. SearchEngine keeps one per thread and only replaces it when new segments are published, so
+ * concurrent queries share nothing mutable.
+ */
+final class QueryContext {
+
+	final SegmentedIndex segments;
+	final TermAtATimeScorer scorer = new TermAtATimeScorer();
+	final BlockMaxWandScorer wand = new BlockMaxWandScorer();
+	final TopKCollector topk = new TopKCollector(0);
+	final Analyzer analyzer = new Analyzer(256); //query text is short, a small stem cache covers the common words
+	PostingIterator postings;
+	PostingIterator termPostings[] = new PostingIterator[0]; //one per query term for the document at a time scorer
+
+	QueryContext(SegmentedIndex segments) {
+		this.segments = segments;
+	}
+}
@@ -0,0 +1,41 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * RateLimiter keeps a background job, such as a segment merge, below a number of bytes per second by sleeping
+ * whenever it gets ahead of the allowed rate. Not thread safe, one limiter per job.
+ */
+public class RateLimiter {
+
+	private final double bytesPerNano;
+	private final long start = System.nanoTime();
+	private long bytes;
+
+	/**
+	 * @param mbPerSecond allowed throughput in megabytes per second
+	 */
+	public RateLimiter(double mbPerSecond) {
+		if (mbPerSecond <= 0) {
+			throw new IllegalArgumentException("rate must be positive: " + mbPerSecond);
+		}
+		this.bytesPerNano = mbPerSecond * 1024 * 1024 / 1e9;
+	}
+
+	/**
+	 * accounts for work done and sleeps if the job is ahead of the allowed rate.
+	 * An interrupt ends the sleep early and is kept on the thread.
+	 * @param processed number of bytes processed since the last call
+	 */
+	public void pause(long processed) {
+		bytes += processed;
+		long targetNanos = (long)(bytes / bytesPerNano);
+		long aheadNanos = targetNanos - (System.nanoTime() - start);
+		if (aheadNanos > 1000000L) {
+			try {
+				Thread.sleep(aheadNanos / 1000000L, (int)(aheadNanos % 1000000L));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
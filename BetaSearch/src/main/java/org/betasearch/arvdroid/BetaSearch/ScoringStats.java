@@ -0,0 +1,96 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @author avijayvargiy <br>
+ * ScoringStats is what a {@link Similarity} needs to score one published set of segments, computed once and shared
+ * by all queries against it: the document factor of every document of every segment, and the idf of every term
+ * queried so far. The idf uses the document frequency over all segments and N = maxDoc, both counting deleted
+ * documents, like the average document length.<br>
+ * Idfs are cached by term id in the first segment holding the term, in an array per segment filled as terms are
+ * queried. Only segments held in memory get one; the idf of a term of a mapped segment is recomputed from the
+ * document frequencies, which are read in place.<br>
+ * A new set of segments gets new stats, see {@link SegmentedIndex#stats(Similarity)}.
+ */
+final class ScoringStats {
+
+	final Similarity similarity;
+	private final SegmentedIndex segments;
+	private final double factors[][]; //segment -> local document id -> document factor
+	private final AtomicReferenceArray < double[] > idfs; //segment -> term id -> idf, NaN until computed
+
+	ScoringStats(SegmentedIndex segments, Similarity similarity) {
+		this.similarity = similarity;
+		this.segments = segments;
+		double averageLength = segments.averageDocumentLength();
+		factors = new double[segments.segmentCount()][];
+		idfs = new AtomicReferenceArray < double[] > (segments.segmentCount());
+		for (int s = 0; s < factors.length; s++) {
+			InvertedIndex index = segments.segment(s).getIndex();
+			factors[s] = new double[index.numDocs()];
+			for (int doc = 0; doc < factors[s].length; doc++) {
+				factors[s][doc] = similarity.documentFactor(index.norm(doc), index.documentLength(doc), averageLength);
+			}
+		}
+	}
+
+	/**
+	 * @param segment number of the segment
+	 * @return document factor of every document of the segment, by local document id
+	 */
+	double[] documentFactors(int segment) {
+		return factors[segment];
+	}
+
+	/**
+	 * @param termIds segment -> query term -> term id in that segment, -1 where the term is missing
+	 * @param term number of the query term
+	 * @return idf of the term over all segments, 0 if it occurs nowhere
+	 */
+	double idf(int termIds[][], int term) {
+		int first = 0;
+		while (first < termIds.length && termIds[first][term] < 0) {
+			first++;
+		}
+		if (first == termIds.length) {
+			return 0;
+		}
+		int id = termIds[first][term];
+		double cached[] = cache(first);
+		if (cached != null && !Double.isNaN(cached[id])) {
+			return cached[id];
+		}
+		int df = 0;
+		for (int s = first; s < termIds.length; s++) {
+			if (termIds[s][term] >= 0) {
+				df += segments.segment(s).getIndex().documentFrequency(termIds[s][term]);
+			}
+		}
+		double idf = similarity.idf(df, segments.maxDoc());
+		if (cached != null) {
+			cached[id] = idf; //two threads may both compute it, either value is right
+		}
+		return idf;
+	}
+
+	/*
+	 * the idf cache of a segment held in memory, created on first use; null for other segments.
+	 */
+	private double[] cache(int segment) {
+		double cached[] = idfs.get(segment);
+		if (cached == null) {
+			InvertedIndex index = segments.segment(segment).getIndex();
+			if (!(index instanceof IndexSnapshot)) {
+				return null;
+			}
+			cached = new double[index.numTerms()];
+			Arrays.fill(cached, Double.NaN);
+			if (!idfs.compareAndSet(segment, null, cached)) {
+				cached = idfs.get(segment);
+			}
+		}
+		return cached;
+	}
+}
@@ -1,15 +1,18 @@
 package org.betasearch.arvdroid.BetaSearch;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.LinkedList;
-import java.util.StringTokenizer;
-import java.io.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.net.MalformedURLException;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * @author avijayvargiy <br>
@@ -18,12 +21,16 @@ import java.nio.file.Paths;
  * <pre>
  * {@code
  *  SearchEngine se = new SearchEngine(directory full path like C:\\Users\\avijayvargiy\\Desktop\\..);
- *  se.build();
+ *  se.build();   //or se.build(new File(index file)) for a directory larger than the heap
+ *  se.save(new File(index file));   //optional, a later start can call se.load(new File(index file)) instead of build()
  *  se.query(querytext);
+ *  se.update();   //optional, indexes only what changed in the directory as a new segment
  * }
  * </pre>
+ * The index is a list of immutable segments: build(), load() and open() produce one segment, every update()
+ * adds a small one and a background {@link MergeScheduler} merges them back together.
  */
-public class SearchEngine {
+public class SearchEngine implements Closeable {
 
 	/**
 	 * @param dirPath
@@ -38,20 +45,112 @@ public class SearchEngine {
 	public String dirPath;
 
 	/**
-	 * set of words representing dictionary
+	 * set of words representing dictionary, only what setWords() set since the last build
+	 * @deprecated the terms are kept off the heap in dictionary; {@link #getWords()} lists them on demand
 	 */
+	@Deprecated
 	public LinkedList < Dictionary > words;
 
 	/**
-	 * number of documents in a directory
+	 * the words in order, the term id of a word is its position (null unless the index is a single segment in memory without deletions)
+	 */
+	public FrontCodedTerms dictionary;
+
+	/**
+	 * the segments queries run against, replaced as a whole on every build, update or merge; null before the first build
+	 */
+	private volatile SegmentedIndex segments;
+
+	/**
+	 * merges the segments added by update() in the background
+	 */
+	private final MergeScheduler mergeScheduler = new MergeScheduler(this);
+
+	/**
+	 * source of unique segment names
+	 */
+	private final AtomicInteger segmentCounter = new AtomicInteger();
+
+	/**
+	 * background watcher started by watch(), null when not watching
+	 */
+	private DirectoryWatcher watcher;
+
+	/**
+	 * how long the directory has to be quiet before a watched change is indexed
+	 */
+	private static final long WATCH_QUIET_MILLIS = 500;
+
+	/**
+	 * prints the name of every document found, as build() always has
+	 */
+	private static final Filter.DocumentConsumer PRINTER = new Filter.DocumentConsumer() {
+		public void accept(File document, BasicFileAttributes attributes) {
+			System.out.println(document.getName());
+		}
+	};
+
+	/**
+	 * per thread query scratch space (accumulators, heap, iterators)
+	 */
+	private final ThreadLocal < QueryContext > contexts = new ThreadLocal < QueryContext > ();
+
+	/**
+	 * what the last update() found changed, null before the first one
+	 */
+	private volatile IncrementalIndexer lastUpdate;
+
+	/**
+	 * document id -> document name and path, the ids used in every posting list (null whenever dictionary is)
+	 */
+	public DocumentTable documents;
+
+	/**
+	 * number of documents in a directory, deleted ones not counted
 	 */
 	public int N;
 
 	/**
-	 * file array holding the all the offline documents
+	 * file array holding the all the offline documents, null until {@link #getF()} asks for it after the index changed
 	 */
 	public File F[];
 
+	/**
+	 * number of threads build() analyzes and inverts documents with, see {@link #setIndexingThreads(int)}.
+	 */
+	public int indexingThreads = 1;
+
+	/**
+	 * whether build() and update() record term positions, which phrase and proximity queries need. It makes the
+	 * index larger and indexing slower, queries that do not use positions run as fast as without.
+	 */
+	public boolean storePositions;
+
+	/**
+	 * ranking function of query() and ranked boolean queries, cosine unless set otherwise.
+	 */
+	private volatile Similarity similarity = new CosineSimilarity();
+
+	/**
+	 * picks the documents of the directory, every *.txt file of the tree unless set otherwise
+	 */
+	private volatile Filter filter = new Filter();
+
+	/**
+	 * told about every document build() finds, prints its name unless set otherwise
+	 */
+	private volatile Filter.DocumentConsumer progress = PRINTER;
+
+	/**
+	 * the stages build() runs the documents through, with their threads and counters
+	 */
+	private final IndexingPipeline pipeline = new IndexingPipeline();
+
+	/**
+	 * results of recent queries, emptied whenever new segments are published
+	 */
+	private final QueryCache queryCache = new QueryCache();
+
 	/**
 	 * result type: full path or just names of the documents etc. you can use the ResultType class to get valid types.
 	 */
@@ -65,15 +164,59 @@ public class SearchEngine {
 		return dirPath;
 	}
 
+	/**
+	 * @return the words of the index in alphabetical order, each a new entry with its term and posting list, or
+	 * the list given to setWords() since the last build; null unless the index is a single segment in memory without
+	 * deletions
+	 * @deprecated creates an entry per word on the heap, iterate {@link #getDictionary()} instead
+	 */
+	@Deprecated
 	public LinkedList < Dictionary > getWords() {
-		return words;
+		LinkedList < Dictionary > set = words;
+		if (set != null) {
+			return set;
+		}
+		IndexSnapshot snapshot = single(segments);
+		if (snapshot == null) {
+			return null;
+		}
+		LinkedList < Dictionary > sortedWords = new LinkedList < Dictionary > ();
+		for (int i = 0; i < snapshot.numTerms(); i++) {
+			sortedWords.add(snapshot.word(i));
+		}
+		return sortedWords;
+	}
+
+	public FrontCodedTerms getDictionary() {
+		return dictionary;
+	}
+
+	public DocumentTable getDocuments() {
+		return documents;
 	}
 
 	public int getN() {
 		return N;
 	}
 
-	public File[] getF() {
+	/**
+	 * @return the files of the documents of the index, deleted ones left out, in document order; made on the first
+	 * call after the index changed, a File per document is too much to make on every update of a large index
+	 */
+	public synchronized File[] getF() {
+		SegmentedIndex current = segments;
+		if (F == null && current != null) {
+			List < File > files = new ArrayList < File > (current.numDocs());
+			for (int s = 0; s < current.segmentCount(); s++) {
+				Segment segment = current.segment(s);
+				for (int doc = 0; doc < segment.maxDoc(); doc++) {
+					if (!segment.isDeleted(doc)) {
+						files.add(new File(segment.getIndex().documentPath(doc)));
+					}
+				}
+			}
+			F = files.toArray(new File[files.size()]);
+		}
 		return F;
 	}
 
@@ -81,6 +224,10 @@ public class SearchEngine {
 		this.dirPath = dirPath;
 	}
 
+	/**
+	 * @deprecated see {@link #getWords()}
+	 */
+	@Deprecated
 	public void setWords(LinkedList < Dictionary > words) {
 		this.words = words;
 	}
@@ -97,6 +244,87 @@ public class SearchEngine {
 		this.resultType = resultType;
 	}
 
+	public int getIndexingThreads() {
+		return indexingThreads;
+	}
+
+	/**
+	 * sizes the CPU bound stages of build(), analyzing and inverting; the other stages are sized through
+	 * {@link #getIndexingPipeline()}.
+	 * @param indexingThreads number of threads, for example Runtime.getRuntime().availableProcessors()
+	 */
+	public void setIndexingThreads(int indexingThreads) {
+		pipeline.setThreads(IndexingPipeline.Stage.ANALYZE, indexingThreads);
+		pipeline.setThreads(IndexingPipeline.Stage.INVERT, indexingThreads);
+		this.indexingThreads = indexingThreads;
+	}
+
+	/**
+	 * @return the stages of build(), to size their threads and queues or read their counters
+	 */
+	public IndexingPipeline getIndexingPipeline() {
+		return pipeline;
+	}
+
+	public Similarity getSimilarity() {
+		return similarity;
+	}
+
+	/**
+	 * @param similarity ranking function for the queries from now on, for example a {@link BM25Similarity}
+	 */
+	public void setSimilarity(Similarity similarity) {
+		if (similarity == null) {
+			throw new IllegalArgumentException("similarity must not be null");
+		}
+		this.similarity = similarity;
+		queryCache.clear(); //the cached results were ranked by the old one
+	}
+
+	/**
+	 * @return the cache of query results, to read its counters or change its bounds
+	 */
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	public Filter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * @param filter which files of the directory are documents, from the next build() or update() on
+	 */
+	public void setFilter(Filter filter) {
+		if (filter == null) {
+			throw new IllegalArgumentException("filter must not be null");
+		}
+		this.filter = filter;
+	}
+
+	public Filter.DocumentConsumer getProgress() {
+		return progress;
+	}
+
+	/**
+	 * @param progress told about every document build() finds, on the thread calling build(); null for nothing
+	 */
+	public void setProgress(Filter.DocumentConsumer progress) {
+		this.progress = progress;
+	}
+
+	public boolean isStorePositions() {
+		return storePositions;
+	}
+
+	/**
+	 * @param storePositions whether to record term positions from the next build() on; segments already built keep
+	 * what they have, and a merge only keeps positions if all merged segments have them
+	 */
+	public void setStorePositions(boolean storePositions) {
+		this.storePositions = storePositions;
+	}
+
 	/**
 	 * builds the dictionary from the given set of documents in a directory<br>
 	 * CONSTRUCTION OF DICTIONARY<br>
@@ -105,387 +333,528 @@ public class SearchEngine {
 	 *  3)Filtering for letters i.e. separating out non-alphabets out of original word formed.<br>
 	 *  4)putting into words dictionary and maintaining dictionary.<br>
 	 *  5)If word is already present than maintain its data structure of list of postings.<br>
+	 * The documents are indexed as the {@link Filter} finds them, so a large tree does not have to be walked to the
+	 * end before indexing starts: reading, analyzing and inverting run on their own threads in an
+	 * {@link IndexingPipeline}.
+	 * The result is published as a new immutable snapshot; queries running meanwhile keep using the previous one.
+	 * @throws IllegalArgumentException if the directory cannot be read
 	 */
-	public void build() {
-		words = new LinkedList < Dictionary > (); //that holds set of words in a dictionary
-		Posting q1 = new Posting();
-		q1.documentName = "data1";
-		q1.termFrequency = 1;
-		Dictionary q2 = new Dictionary();
-		q2.term = "dfhjdfhdjfhdjf"; //dummy word to initialize in the dictionary.
-		q2.documentFrequency++;
-		q2.list = new LinkedList < Posting > ();
-		q2.list.add(q1);
-		words.add(q2);
-		BufferedReader br = null;
-		Filter f = new Filter(); // for doing the file picking of .txt files from the specified directory
-		F = new File[1000]; //
-		F = f.finder(dirPath);
-		N = F.length; //is the number of documents in the directory
-		for (int i = 0; i < N; i++) {
-			System.out.println(F[i].getName());
+	public synchronized void build() {
+		IndexSnapshot snapshot;
+		try {
+			snapshot = pipeline.build(filter, dirPath, storePositions, progress);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("cannot read the document directory " + dirPath, e);
 		}
+		publish(snapshot);
+	}
 
-		/*
-          CONSTRUCTION OF DICTIONARY
-          1)picking of single word form each and every doc.(Tokenization)
-          2)Stemming that single word.
-          3)Filtering for letters i.e. separating out non-alphabets out of original word formed
-          4)putting into words dictionary and maintaining dictionary
-          5)If word is already present than maintain its data structure of list of postings
-		 */
-		for (int i = 0; i < N; i++) {
-			try {
-
-				String sCurrentLine;
-				String path = F[i].getAbsolutePath();
-				String name = F[i].getName();
-				int posh = name.lastIndexOf(".");
-				if (posh > 0) {
-					name = name.substring(0, posh);
-				}
-				String currentDoc = name;
-				br = new BufferedReader(new FileReader(path));
-
-				while ((sCurrentLine = br.readLine()) != null) {
-					StringTokenizer st = new StringTokenizer(sCurrentLine);
-					while (st.hasMoreTokens()) {
-						String termtemp = st.nextToken();
-						termtemp = termtemp.toLowerCase();
-						Stemmer s = new Stemmer();
-						char buffer[] = termtemp.toCharArray();
-						int bufferlen = buffer.length;
-						s.add(buffer, bufferlen);
-						s.stem();
-						termtemp = s.toString();
-						int i1 = 0;
-						int j = 0;
-						char finalbuffer[] = termtemp.toCharArray();
-						char tempbuffer[] = new char[100];
-						while (i1 < finalbuffer.length) {
-							if (Character.isLetter(finalbuffer[i1])) {
-								tempbuffer[j++] = finalbuffer[i1];
-							}
-							i1++;
-						}
-						tempbuffer[j] = '\0';
-						String l = new String(tempbuffer);
-						termtemp = l;
-						ListIterator < Dictionary > listIterator = words.listIterator();
-						int flag = 0;
-						while (listIterator.hasNext()) {     
-							Dictionary dtemp = listIterator.next();
-							if (dtemp.term.equals(termtemp)) {
-								flag = 1;
-								ListIterator < Posting > postinglist = (dtemp.list).listIterator();
-								int flag2 = 0;
-								while (postinglist.hasNext()) {
-									Posting pos = postinglist.next();
-									if (pos.documentName.equals(currentDoc)) {
-										flag2 = 1;
-										pos.termFrequency++;
-										break;
-									}
-								}
-								if (flag2 != 1) {
-									Posting npos = new Posting();
-									npos.documentName = currentDoc;
-									npos.termFrequency++;
-									postinglist.add(npos);
-									dtemp.documentFrequency++;
-
-								}
-							}
-						}
-						if (flag != 1) {
-							Posting np = new Posting();
-							np.documentName = currentDoc;
-							np.termFrequency = 1;
-							Dictionary d = new Dictionary();
-							d.term = termtemp;
-							d.documentFrequency++;
-							d.list = new LinkedList < Posting > ();
-							d.list.add(np);
-							words.add(d);
-						}
-					}
-				}
+	/**
+	 * builds the index like {@link #build()} but straight into an index file, which is then {@link #open(File)
+	 * opened}, so a directory whose postings do not fit on the heap can be indexed. The partial indexes are
+	 * spilled next to the file once they reach the {@link IndexingPipeline#setMemoryBudget(long) memory budget}
+	 * and merged into it at the end.
+	 * @param indexFile index file to write, replaced if it exists
+	 * @throws IOException if the directory cannot be read or the file cannot be written
+	 */
+	public synchronized void build(File indexFile) throws IOException {
+		pipeline.write(filter, dirPath, storePositions, progress, indexFile);
+		open(indexFile);
+	}
 
-			} catch (IOException e) {
-				e.printStackTrace();
-			} finally {
-				try {
-					if (br != null) br.close();
-				} catch (IOException ex) {
-					ex.printStackTrace();
-				}
+	/**
+	 * brings the index up to date with the directory: only documents that were added, changed (modification
+	 * time or size) or deleted since they were indexed are processed. They go into a new segment, older versions
+	 * are marked deleted, and a background merge is scheduled if the merge policy asks for one.
+	 * Builds the index if there is none yet. Queries keep using the previous segments until the new ones are published.
+	 * @return true if the index changed
+	 * @throws IllegalArgumentException if the directory cannot be read
+	 */
+	public synchronized boolean update() {
+		SegmentedIndex current = segments;
+		if (current == null) {
+			build();
+			return true;
+		}
+		File files[] = filter.finder(dirPath); //deletions are only known once the whole tree was walked
+		IncrementalIndexer indexer = new IncrementalIndexer(storePositions);
+		SegmentedIndex updated = indexer.update(current, files, newSegmentName());
+		lastUpdate = indexer;
+		if (updated == current) {
+			return false;
+		}
+		publish(updated);
+		mergeScheduler.maybeMerge();
+		return true;
+	}
 
-			}
+	/**
+	 * merges all segments into one right away, dropping the deleted documents, instead of waiting for the merge policy.
+	 */
+	public synchronized void forceMerge() {
+		SegmentedIndex current = segments;
+		if (current == null || (current.segmentCount() == 1 && current.segment(0).deletedDocs() == 0)) {
+			return;
+		}
+		publish(merged(current));
+	}
 
+	/**
+	 * keeps the index up to date in the background: every change in the directory triggers {@link #update()}.
+	 * @throws IOException if the directory cannot be watched
+	 */
+	public synchronized void watch() throws IOException {
+		if (watcher != null) {
+			return;
 		}
-		Collections.sort(words); //sorting the dictionary alphabetically
-		//printing the posting lists
-		ListIterator < Dictionary > li1 = words.listIterator();
-		while (li1.hasNext()) {
-			Dictionary d1 = li1.next();
-			System.out.print("word=" + d1.term.trim() + " ");
-			System.out.print("(" + d1.documentFrequency + ")" + "->");
-			ListIterator < Posting > pl1 = (d1.list).listIterator();
-			while (pl1.hasNext()) {
-				Posting p2 = pl1.next();
-				System.out.print(p2.documentName + "(" + p2.termFrequency + "),");
+		watcher = new DirectoryWatcher(Paths.get(dirPath), new Runnable() {
+			public void run() {
+				update();
 			}
-			System.out.println();
+		}, WATCH_QUIET_MILLIS, filter.isRecursive());
+	}
+
+	/**
+	 * stops the background updates started by {@link #watch()}.
+	 * @throws IOException if the watcher cannot be closed
+	 */
+	public synchronized void stopWatching() throws IOException {
+		if (watcher != null) {
+			watcher.close();
+			watcher = null;
 		}
 	}
 
+	/**
+	 * stops watching the directory and the background merges.
+	 * @throws IOException if the watcher cannot be closed
+	 */
+	public void close() throws IOException {
+		stopWatching();
+		mergeScheduler.close();
+	}
+
+	/*
+	 * publishes a freshly built, loaded or opened index as the only segment.
+	 */
+	private void publish(InvertedIndex published) {
+		publish(new SegmentedIndex(new Segment[] { new Segment(newSegmentName(), published) }));
+	}
+
+	/*
+	 * the only segment of the index if it is held in memory and has no deletions, else null.
+	 */
+	private static IndexSnapshot single(SegmentedIndex index) {
+		Segment only = index != null && index.segmentCount() == 1 ? index.segment(0) : null;
+		if (only != null && only.deletedDocs() == 0 && only.getIndex() instanceof IndexSnapshot) {
+			return (IndexSnapshot) only.getIndex();
+		}
+		return null;
+	}
+
+	/*
+	 * makes the segments visible to queries and refreshes the legacy fields describing them.
+	 * dictionary and documents only exist for a single segment held in memory without deletions.
+	 * Callers hold the lock of this engine.
+	 */
+	void publish(SegmentedIndex published) {
+		IndexSnapshot snapshot = single(published);
+		words = null;
+		if (snapshot != null) {
+			dictionary = snapshot.getDictionary();
+			documents = snapshot.getDocuments();
+		} else {
+			dictionary = null;
+			documents = null;
+		}
+		N = published.numDocs();
+		F = null; //made by getF() when asked for
+		queryCache.invalidate(published); //before publishing, so no result of the old segments gets in afterwards
+		this.segments = published;
+	}
+
+	/**
+	 * @return the segments queries currently run against
+	 */
+	SegmentedIndex currentSegments() {
+		return segments;
+	}
+
+	/**
+	 * @return a name no other segment of this engine has
+	 */
+	String newSegmentName() {
+		return "_" + segmentCounter.getAndIncrement();
+	}
+
+	/*
+	 * all live documents of the segments as one index.
+	 */
+	private static InvertedIndex merged(SegmentedIndex current) {
+		if (current.segmentCount() == 1 && current.segment(0).deletedDocs() == 0) {
+			return current.segment(0).getIndex();
+		}
+		List < InvertedIndex > parts = new ArrayList < InvertedIndex > ();
+		List < BitSet > deletions = new ArrayList < BitSet > ();
+		for (int s = 0; s < current.segmentCount(); s++) {
+			parts.add(current.segment(s).getIndex());
+			deletions.add(current.segment(s).getDeletions());
+		}
+		return new IndexMerger().merge(parts, deletions);
+	}
+
+	/**
+	 * writes the current index to a file so that a later start can {@link #load(File)} it instead of building again.
+	 * Several segments are written merged into one, without their deleted documents.
+	 * @param indexFile destination of the index
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalStateException if nothing has been built or loaded yet
+	 */
+	public void save(File indexFile) throws IOException {
+		SegmentedIndex current = segments;
+		if (current == null) {
+			throw new IllegalStateException("no index to save, call build() first");
+		}
+		new IndexWriter().write(merged(current), indexFile);
+	}
+
+	/**
+	 * replaces the index with the one stored in a file written by {@link #save(File)}.
+	 * @param indexFile index file
+	 * @throws IOException if the file cannot be read or has an unsupported version
+	 */
+	public synchronized void load(File indexFile) throws IOException {
+		publish(new IndexLoader().load(indexFile));
+	}
+
+	/**
+	 * serves queries straight from an index file written by {@link #save(File)} through a memory mapping,
+	 * instead of loading it onto the heap. See {@link MappedIndex}.
+	 * @param indexFile index file
+	 * @throws IOException if the file cannot be mapped or has an unsupported version
+	 */
+	public synchronized void open(File indexFile) throws IOException {
+		publish(MappedIndex.open(indexFile));
+	}
+
+	/**
+	 * @return the segments queries currently run against, null before the first build
+	 */
+	public SegmentedIndex getSegments() {
+		return segments;
+	}
+
+	/**
+	 * @return the last {@link #update()} that compared the index with the directory, whose getters tell how many
+	 * documents it added, re-indexed and deleted; null if there was none yet or the first update built the index
+	 */
+	public IncrementalIndexer getLastUpdate() {
+		return lastUpdate;
+	}
+
+	/**
+	 * @return the background merger, to tune its policy and rate
+	 */
+	public MergeScheduler getMergeScheduler() {
+		return mergeScheduler;
+	}
+
 	/**
 	 * @param query user query
-	 * @return queryresult containing arranged documents in sorted format
+	 * @return queryresult containing the matching documents, best first, in the format given by resultType
 	 * @throws Exception 
 	 */
 	public String[] query(String query) throws Exception { 
-		//Main Algorithm Cosin Similarity
-		//String query="Hobbit baggins ring hobbit tolkein";
-		//String query=querytext; //getting the qury from the user
+		if (!resultType.equals(ResultType.FULL_PATH) && !resultType.equals(ResultType.DOCUMENT_NAME)) {
+			throw new Exception("result type not valid");
+		}
+		SegmentedIndex current = segments;
+		SearchResult hits[] = query(query, current == null ? 0 : current.numDocs());
+
 		/*
-                   processing the query
-                   1)Maintaing the linked list of data structure query term.
-                   2)tokenization of each and every term in the query
-                   3)stemming of term
-                   4)putting of that query term into the list along with calculating the no of occurences
-                    of that particular term
+            Collecting all the result and putting into proper format
 		 */
 
-		LinkedList < QueryTerm > qt = new LinkedList < QueryTerm > ();
-		int flag4 = 0;
-		int termcount = 0;
-		StringTokenizer st = new StringTokenizer(query);
-		while (st.hasMoreTokens()) {
-			String termtemp = st.nextToken();
-			termtemp = termtemp.toLowerCase();
-			Stemmer s = new Stemmer();
-			char buffer[] = termtemp.toCharArray();
-			int bufferlen = buffer.length;
-			s.add(buffer, bufferlen);
-			s.stem();
-			termtemp = s.toString();
-			int i1 = 0;
-			int j = 0;
-			char finalbuffer[] = termtemp.toCharArray();
-			char tempbuffer[] = new char[100];
-			while (i1 < finalbuffer.length) {
-				if (Character.isLetter(finalbuffer[i1])) {
-					tempbuffer[j++] = finalbuffer[i1];
+		String result[] =new String[hits.length];
+		if(resultType.equals(ResultType.FULL_PATH)){
+			for (int i = 0; i < hits.length; i++) {
+				 try {
+					result[i] = Paths.get(hits[i].getPath()).toRealPath().toUri().toURL().toString();
+				} catch (MalformedURLException e) {
+					// TODO Auto-generated catch block
+					e.printStackTrace();
+				} catch (IOException e) {
+					// TODO Auto-generated catch block
+					e.printStackTrace();
 				}
-				i1++;
 			}
-			tempbuffer[j] = '\0';
-			String l = new String(tempbuffer);
-			termtemp = l;
-			if (flag4 == 0) {
-				QueryTerm q = new QueryTerm();
-				q.termname = termtemp;
-				q.TermFrequency++;
-				qt.add(q);
-				termcount++;
-				flag4 = 1;
-			} else {
-				ListIterator < QueryTerm > qli = qt.listIterator();
-				int flag5 = 0;
-				while (qli.hasNext()) {
-					QueryTerm qlitemp = qli.next();
-					if (qlitemp.termname.equals(termtemp)) {
-						flag5 = 1;
-						qlitemp.TermFrequency++;
-						break;
-					}
-				}
-				if (flag5 == 0) {
-					QueryTerm nqt = new QueryTerm();
-					nqt.termname = termtemp;
-					nqt.TermFrequency++;
-					qt.add(nqt);
-					termcount++;
-				}
+		}else{
+			for(int i=0; i<hits.length;i++){
+				result[i] = new File(hits[i].getPath()).getName();
 			}
 		}
+		return result;
+	}
+
+	/**
+	 * ranks the documents against the query with the engine's {@link Similarity} and returns the k best ones.
+	 * Documents that share no word with the query are never returned.
+	 * Every segment is scored with the document frequencies of the whole collection and the segments' hits
+	 * meet in one top-k heap. Results are cached, see {@link #getQueryCache()}.
+	 * Safe to call from any number of threads at once.
+	 * @param query user query
+	 * @param k maximum number of documents to return
+	 * @return at most k results, best first
+	 */
+	public SearchResult[] query(String query, int k) {
+		SegmentedIndex current = segments; //read once, a concurrent build() must not change the index mid query
+		if (current == null) {
+			return new SearchResult[0];
+		}
+		QueryContext context = context(current);
+		Similarity similarity = this.similarity;
 		/*
-                   Now the below processing calculates the query parameter
-                   1)matrix[]=tf-wt for each term in the query
-                   2)matrix2[]=iDF for each term
-                   3)matrix3[]=wt-Q followed by normalization
+                   processing the query
+                   1)Maintaing the linked list of data structure query term.
+                   2)tokenization, stemming and filtering of each and every term in the query by the analyzer
+                   3)putting of that query term into the list along with calculating the no of occurences
+                    of that particular term
 		 */
-		ListIterator < QueryTerm > qli2 = qt.listIterator();
-		double matrix[] = new double[termcount];
-		int i7 = 0;
-		while (qli2.hasNext()) {
-			QueryTerm qqt = qli2.next();
-			matrix[i7] = 1 + Math.log(qqt.TermFrequency);
-			i7++;
-		}
-		//traverse all documents
-		double matrix2[] = new double[termcount];
-		i7 = 0;
-		ListIterator < QueryTerm > qit = qt.listIterator();
-		while (qit.hasNext()) {
-			String s = qit.next().termname;
-			ListIterator < Dictionary > lid = words.listIterator();
-			while (lid.hasNext()) {
-				Dictionary dt = lid.next();
-				if (dt.term.equals(s)) {
-					matrix2[i7] = Math.log((double) N / dt.documentFrequency);
-					i7++;
-					break;
-				}
+
+		final LinkedList < QueryTerm > qt = new LinkedList < QueryTerm > ();
+		context.analyzer.analyze(query, new Analyzer.TermConsumer() {
+			public void accept(char term[], int length) {
+				addQueryTerm(qt, new String(term, 0, length));
 			}
+		});
+		k = Math.min(k, current.numDocs()); //asking for more than all documents is asking for all of them
+		QueryCache.Key key = new QueryCache.Key(queryKey(qt), k, similarity);
+		SearchResult cached[] = queryCache.get(current, key);
+		if (cached != null) {
+			return cached;
 		}
-		double matrix3[] = new double[termcount];
-		for (int i = 0; i < termcount; i++) {
-			matrix3[i] = matrix[i] * matrix2[i];
-			System.out.println("matrix[" + i + "]=" + matrix3[i]);
-		}
-		//Normalization
-		double norm = 0.0;
-		for (int i = 0; i < termcount; i++) {
-			norm = norm + (matrix3[i] * matrix3[i]);
-		}
-		norm = Math.sqrt(norm);
-		for (int i = 0; i < termcount; i++) {
-			matrix3[i] = matrix3[i] / norm;
-		}
-		//matrix3 contains normalized values for queries.
-		double normdoc[] = new double[N]; //normdoc conatins the normalization values of each and every doc
-		for (int i = 0; i < N; i++) {
-			normdoc[i] = 0.0;
-		}
-		for (int i = 0; i < N; i++) {
-			String name = F[i].getName();
-			int pos = name.lastIndexOf(".");
-			if (pos > 0) {
-				name = name.substring(0, pos);
+		ScoringStats stats = current.stats(similarity);
+		int termcount = qt.size();
+		int termIds[][] = new int[current.segmentCount()][termcount]; //segment -> term id of each query term there
+		double weights[] = queryWeights(current, stats, qt, termIds);
+		//the document factors of each and every doc were computed once for the published segments
+		//the segments are scored one after the other into one heap
+		/*
+                        Picking the k best documents with a bounded min heap, only live documents
+                        that matched at least one query term are offered to it.
+		 */
+		TopKCollector topk = context.topk;
+		topk.reset(k);
+		if (k < current.numDocs()) {
+			//only the best few are wanted: documents that cannot beat the heap are skipped
+			BlockMaxWandScorer wand = context.wand;
+			if (context.termPostings.length < termcount) {
+				context.termPostings = new PostingIterator[termcount];
 			}
-			String currentdoc = name;
-			ListIterator < Dictionary > ddt = words.listIterator();
-			while (ddt.hasNext()) {
-				Dictionary dq = ddt.next();
-				ListIterator < Posting > tft = dq.list.listIterator();
-				while (tft.hasNext()) {
-					Posting p = tft.next();
-					if (p.documentName.equals(currentdoc)) {
-						double d = 1 + Math.log(p.termFrequency);
-						d = d * d;
-						normdoc[i] = normdoc[i] + d;
-						break;
+			for (int s = 0; s < termIds.length && k > 0; s++) {
+				Segment segment = current.segment(s);
+				wand.reset();
+				for (int i = 0; i < termcount; i++) {
+					if (termIds[s][i] >= 0) {
+						context.termPostings[i] = segment.getIndex().postings(termIds[s][i], context.termPostings[i]);
+						wand.add(context.termPostings[i], weights[i]);
+					}
+				}
+				wand.score(stats.similarity, stats.documentFactors(s), segment.getDeletions(), current.base(s), topk);
+			}
+			wand.reset();
+		} else {
+			//every match is wanted: each posting list is walked once, adding into the score accumulators
+			TermAtATimeScorer scorer = context.scorer;
+			for (int s = 0; s < termIds.length; s++) {
+				Segment segment = current.segment(s);
+				scorer.reset(segment.getIndex(), stats.similarity, stats.documentFactors(s));
+				for (int i = 0; i < termcount; i++) {
+					if (termIds[s][i] >= 0) {
+						context.postings = segment.getIndex().postings(termIds[s][i], context.postings);
+						scorer.add(context.postings, weights[i]);
+					}
+				}
+				int base = current.base(s);
+				for (int i = 0; i < scorer.hitCount(); i++) {
+					int doc = scorer.hit(i);
+					if (!segment.isDeleted(doc)) {
+						topk.collect(base + doc, scorer.score(doc));
 					}
 				}
 			}
 		}
-		for (int i = 0; i < N; i++) {
-			normdoc[i] = Math.sqrt(normdoc[i]);
+		int ranked[] = new int[topk.size()];
+		double score[] = new double[topk.size()];
+		int count = topk.drain(ranked, score);
+		SearchResult result[] = new SearchResult[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = new SearchResult(ranked[i], score[i], current.documentName(ranked[i]), current.documentPath(ranked[i]));
 		}
-		double score[] = new double[N]; //array for scoring each and every doc
-		for (int qq = 0; qq < N; qq++) {
-			score[qq] = 0.0;
+		queryCache.put(current, key, result);
+		return result;
+	}
+
+	/**
+	 * runs a boolean query such as "hobbit AND (ring OR sword) AND NOT dragon", see {@link BooleanQuery} for the syntax.
+	 * Unranked, the matching documents come back in index order with a score of 0, which needs no scoring at all;
+	 * ranked, they are scored by the engine's {@link Similarity} against the words not under a NOT and the best come first.
+	 * Results are cached like those of {@link #query(String, int)}. Safe to call from any number of threads at once.
+	 * @param query boolean query
+	 * @param k maximum number of documents to return
+	 * @param ranked whether to rank the matches
+	 * @return at most k matching documents
+	 * @throws IllegalArgumentException if the query is malformed
+	 */
+	public SearchResult[] booleanQuery(String query, int k, boolean ranked) {
+		SegmentedIndex current = segments;
+		if (current == null) {
+			return new SearchResult[0];
 		}
-		for (int i = 0; i < N; i++) {
-			String name = F[i].getName();
-			int pos = name.lastIndexOf(".");
-			if (pos > 0) {
-				name = name.substring(0, pos);
-			}
-			String curdoc = name;
-			double termmatrix[] = new double[termcount];
-			for (int k = 0; k < termcount; k++) {
-				termmatrix[k] = 0.0;
-			}
-			double finalmatrix[] = new double[termcount];
-			for (int k = 0; k < termcount; k++) {
-				finalmatrix[k] = 0.0;
+		QueryContext context = context(current);
+		Similarity similarity = this.similarity;
+		BooleanQuery parsed = BooleanQuery.parse(query, context.analyzer);
+		if (parsed == null || k <= 0) {
+			return new SearchResult[0];
+		}
+		//the parsed query prints its analyzed words, so that is its normal form
+		QueryCache.Key key = new QueryCache.Key((ranked ? "ranked " : "unranked ") + parsed, k, similarity);
+		SearchResult cached[] = queryCache.get(current, key);
+		if (cached != null) {
+			return cached;
+		}
+		ScoringStats stats = current.stats(similarity);
+		List < String > positive = new ArrayList < String > ();
+		parsed.positiveTerms(positive);
+		LinkedList < QueryTerm > qt = new LinkedList < QueryTerm > ();
+		for (String term : positive) {
+			addQueryTerm(qt, term);
+		}
+		int termcount = qt.size();
+		int termIds[][] = new int[current.segmentCount()][termcount];
+		double weights[] = queryWeights(current, stats, qt, termIds);
+		List < SearchResult > unranked = new ArrayList < SearchResult > ();
+		TopKCollector topk = context.topk;
+		topk.reset(Math.min(k, current.numDocs()));
+		if (context.termPostings.length < termcount) {
+			context.termPostings = new PostingIterator[termcount];
+		}
+		for (int s = 0; s < current.segmentCount() && unranked.size() < k; s++) {
+			Segment segment = current.segment(s);
+			InvertedIndex index = segment.getIndex();
+			int base = current.base(s);
+			double factors[] = stats.documentFactors(s);
+			DocIterator matches = parsed.iterator(index);
+			if (ranked) {
+				//the match iterator only says which documents; separate iterators pick up the frequencies
+				for (int i = 0; i < termcount; i++) {
+					context.termPostings[i] = termIds[s][i] < 0 ? null : index.postings(termIds[s][i], context.termPostings[i]);
+				}
 			}
-			int termcounter = 0;
-			ListIterator < QueryTerm > qa = qt.listIterator();
-			while (qa.hasNext()) {
-				QueryTerm q5 = qa.next();
-				String stx = q5.termname;
-				ListIterator < Dictionary > li = words.listIterator();
-				while (li.hasNext()) {
-					Dictionary lp = li.next();
-					if (lp.term.equals(stx)) {
-						ListIterator < Posting > ltt = lp.list.listIterator();
-						int found = 0;
-						while (ltt.hasNext()) {
-							Posting docn = ltt.next();
-							if (docn.documentName.equals(curdoc)) {
-								found = 1;
-								termmatrix[termcounter] = docn.termFrequency / normdoc[i];
-								finalmatrix[termcounter] = termmatrix[termcounter] * matrix3[termcounter];
-								score[i] = score[i] + finalmatrix[termcounter];
-								termcounter++;
-								break;
-							}
-
-						}
-						if (found == 0) {
-							termcounter++;
-						}
+			for (int doc = matches.nextDoc(); doc != DocIterator.NO_MORE_DOCS; doc = matches.nextDoc()) {
+				if (segment.isDeleted(doc)) {
+					continue;
+				}
+				if (!ranked) {
+					unranked.add(new SearchResult(base + doc, 0, index.documentName(doc), index.documentPath(doc)));
+					if (unranked.size() == k) {
+						break;
 					}
+					continue;
 				}
-
+				double score = 0;
+				for (int i = 0; i < termcount; i++) {
+					PostingIterator postings = context.termPostings[i];
+					if (postings != null && postings.advance(doc) == doc) {
+						score += stats.similarity.score(postings.termFrequency(), factors[doc]) * weights[i];
+					}
+				}
+				topk.collect(base + doc, score);
 			}
-
 		}
+		SearchResult result[];
+		if (!ranked) {
+			result = unranked.toArray(new SearchResult[unranked.size()]);
+		} else {
+			int hits[] = new int[topk.size()];
+			double score[] = new double[topk.size()];
+			int count = topk.drain(hits, score);
+			result = new SearchResult[count];
+			for (int i = 0; i < count; i++) {
+				result[i] = new SearchResult(hits[i], score[i], current.documentName(hits[i]), current.documentPath(hits[i]));
+			}
+		}
+		queryCache.put(current, key, result);
+		return result;
+	}
 
-		for (int i = 0; i < N; i++) {
-			score[i] = score[i] / normdoc[i];
-			System.out.println("normdoc[" + i + "]" + "=" + normdoc[i]);
+	/*
+	 * one thread's query scratch state for the published segments.
+	 */
+	private QueryContext context(SegmentedIndex current) {
+		QueryContext context = contexts.get();
+		if (context == null || context.segments != current) {
+			context = new QueryContext(current);
+			contexts.set(context);
 		}
-		/*
-                        Bubble sort the documents list based on their scores.
-                        and also manipulating the file array.
+		return context;
+	}
 
-		 */
-		for (int i = 0; i < N - 1; i++) {
-			for (int j = 0; j < N - i - 1; j++) {
-				if (score[j] < score[j + 1]) {
-					double temp = score[j];
-					score[j] = score[j + 1];
-					score[j + 1] = temp;
-					File ftemp = F[j];
-					F[j] = F[j + 1];
-					F[j + 1] = ftemp;
-				}
+	/*
+	 * counts one more occurrence of a term in the query.
+	 */
+	private static void addQueryTerm(LinkedList < QueryTerm > qt, String termtemp) {
+		ListIterator < QueryTerm > qli = qt.listIterator();
+		while (qli.hasNext()) {
+			QueryTerm qlitemp = qli.next();
+			if (qlitemp.termname.equals(termtemp)) {
+				qlitemp.TermFrequency++;
+				return;
 			}
 		}
-		for (int i = 0; i < N; i++) {
-			System.out.println("Score[" + i + "]" + "=" + score[i]);
-			System.out.println("F[" + i + "]" + "=" + F[i].getAbsolutePath());
-		}
+		QueryTerm nqt = new QueryTerm();
+		nqt.termname = termtemp;
+		nqt.TermFrequency++;
+		qt.add(nqt);
+	}
 
-		/*
-            Collecting all the result and putting into proper format
-		 */
+	/*
+	 * normal form of a ranked query: its analyzed terms in sorted order with their counts, so queries that differ only
+	 * in word order, case, stop words or inflection share a cache entry.
+	 */
+	private static String queryKey(LinkedList < QueryTerm > qt) {
+		String terms[] = new String[qt.size()];
+		int i = 0;
+		for (QueryTerm term : qt) {
+			terms[i++] = term.termname + "^" + term.TermFrequency;
+		}
+		Arrays.sort(terms);
+		StringBuilder sb = new StringBuilder("terms");
+		for (String term : terms) {
+			sb.append(' ').append(term);
+		}
+		return sb.toString();
+	}
 
-		String result[] =new String[N];
-		if(resultType.equals(ResultType.FULL_PATH)){
-			for (int i = 0; i < N; i++) {
-				 try {
-					result[i] = Paths.get(F[i].getAbsolutePath()).toRealPath().toUri().toURL().toString();
-				} catch (MalformedURLException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				} catch (IOException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-			}
-		}else if(resultType.equals(ResultType.DOCUMENT_NAME)){
-			for(int i=0; i<N;i++){
-				result[i] = F[i].getName();
+	/*
+	 * the weights of the query terms under the similarity, also filling in the term id of every query term in every
+	 * segment (-1 if absent).
+	 */
+	private static double[] queryWeights(SegmentedIndex current, ScoringStats stats, LinkedList < QueryTerm > qt, int termIds[][]) {
+		int termcount = qt.size();
+		int frequencies[] = new int[termcount];
+		double idfs[] = new double[termcount];
+		int i = 0;
+		for (QueryTerm term : qt) {
+			frequencies[i] = term.TermFrequency;
+			for (int s = 0; s < termIds.length; s++) {
+				termIds[s][i] = current.segment(s).getIndex().termId(term.termname);
 			}
-		}else{
-			throw new Exception("result type not valid");
+			idfs[i] = stats.idf(termIds, i); //a word missing from the dictionary has an idf of 0
+			i++;
 		}
-		return result;
+		double weights[] = new double[termcount];
+		stats.similarity.queryWeights(frequencies, idfs, weights);
+		return weights;
 	}
 }
\ No newline at end of file
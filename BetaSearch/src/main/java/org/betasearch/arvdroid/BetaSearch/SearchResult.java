@@ -0,0 +1,47 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * SearchResult is one ranked hit returned by {@link SearchEngine#query(String, int)}:
+ * the document id, its score and the document name and path.
+ */
+public class SearchResult {
+
+	private final int docId;
+	private final double score;
+	private final String name;
+	private final String path;
+
+	public SearchResult(int docId, double score, String name, String path) {
+		this.docId = docId;
+		this.score = score;
+		this.name = name;
+		this.path = path;
+	}
+
+	public int getDocId() {
+		return docId;
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * @return document name, the file name without its extension
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return absolute path of the document
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	public String toString() {
+		return name + "(" + score + ")";
+	}
+}
@@ -0,0 +1,91 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.BitSet;
+
+/**
+ * @author avijayvargiy <br>
+ * Segment is one immutable piece of the index: an {@link InvertedIndex} over some of the documents plus the set
+ * of its documents that have been deleted since (because their file was removed or changed).<br>
+ * Deleting documents never touches the index; it produces a new Segment with the same name and a larger
+ * deletion set. Deleted documents stay in the posting lists until the segment is merged.
+ */
+public final class Segment {
+
+	private final String name;
+	private final InvertedIndex index;
+	private final BitSet deletions; //never modified, null when nothing is deleted
+	private final int deletedDocs;
+
+	/**
+	 * @param name unique name of the segment, kept when documents are deleted from it
+	 * @param index documents of the segment
+	 */
+	public Segment(String name, InvertedIndex index) {
+		this(name, index, null);
+	}
+
+	private Segment(String name, InvertedIndex index, BitSet deletions) {
+		this.name = name;
+		this.index = index;
+		this.deletions = deletions;
+		this.deletedDocs = deletions == null ? 0 : deletions.cardinality();
+	}
+
+	/**
+	 * @param docs ids of documents of this segment to delete
+	 * @return a segment with the same name and index in which those documents are deleted as well
+	 */
+	public Segment withDeletions(BitSet docs) {
+		BitSet merged = deletions == null ? new BitSet(index.numDocs()) : (BitSet) deletions.clone();
+		merged.or(docs);
+		return new Segment(name, index, merged);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public InvertedIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return deleted documents, null when there are none; must not be modified
+	 */
+	BitSet getDeletions() {
+		return deletions;
+	}
+
+	/**
+	 * @param docId document id within the segment
+	 * @return true if the document has been deleted
+	 */
+	public boolean isDeleted(int docId) {
+		return deletions != null && deletions.get(docId);
+	}
+
+	/**
+	 * @return number of documents in the segment, deleted ones included
+	 */
+	public int maxDoc() {
+		return index.numDocs();
+	}
+
+	/**
+	 * @return number of documents that are not deleted
+	 */
+	public int numDocs() {
+		return index.numDocs() - deletedDocs;
+	}
+
+	/**
+	 * @return number of deleted documents
+	 */
+	public int deletedDocs() {
+		return deletedDocs;
+	}
+
+	public String toString() {
+		return name + "(" + numDocs() + (deletedDocs > 0 ? ", -" + deletedDocs : "") + ")";
+	}
+}
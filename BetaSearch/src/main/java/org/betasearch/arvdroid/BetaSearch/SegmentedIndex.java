@@ -0,0 +1,163 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+
+/**
+ * @author avijayvargiy <br>
+ * SegmentedIndex is the immutable list of segments SearchEngine publishes to queries. Every change to the index,
+ * whether new documents, deletions or a merge, publishes a new SegmentedIndex; the one a query started with
+ * stays valid until it finishes.<br>
+ * Documents get global ids by numbering the segments one after the other: the documents of segment i have
+ * ids base(i) to base(i)+maxDoc-1.
+ */
+public final class SegmentedIndex {
+
+	/**
+	 * index without any segment
+	 */
+	public static final SegmentedIndex EMPTY = new SegmentedIndex(new Segment[0]);
+
+	private final Segment segments[];
+	private final int bases[];
+	private final int maxDoc;
+	private final int numDocs;
+	private volatile ScoringStats stats; //of the similarity queried last
+
+	/**
+	 * @param segments the segments, in global document id order
+	 */
+	public SegmentedIndex(Segment segments[]) {
+		this.segments = segments.clone();
+		this.bases = new int[segments.length];
+		int max = 0;
+		int live = 0;
+		for (int i = 0; i < segments.length; i++) {
+			bases[i] = max;
+			max += segments[i].maxDoc();
+			live += segments[i].numDocs();
+		}
+		this.maxDoc = max;
+		this.numDocs = live;
+	}
+
+	/**
+	 * @return number of segments
+	 */
+	public int segmentCount() {
+		return segments.length;
+	}
+
+	public Segment segment(int i) {
+		return segments[i];
+	}
+
+	/**
+	 * @param i segment number
+	 * @return global id of the first document of the segment
+	 */
+	public int base(int i) {
+		return bases[i];
+	}
+
+	/**
+	 * @return number of documents, deleted ones included; this is the N of the idf so that it stays
+	 * consistent with document frequencies, which also still count deleted documents
+	 */
+	public int maxDoc() {
+		return maxDoc;
+	}
+
+	/**
+	 * @return number of documents that are not deleted
+	 */
+	public int numDocs() {
+		return numDocs;
+	}
+
+	/**
+	 * @param docId global document id
+	 * @return number of the segment holding the document
+	 */
+	public int segmentOf(int docId) {
+		int i = Arrays.binarySearch(bases, docId);
+		if (i < 0) {
+			i = -i - 2;
+		}
+		//empty segments share their base with the next one
+		while (i + 1 < bases.length && bases[i + 1] == docId) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @param term stemmed and filtered word
+	 * @return number of documents containing the word over all segments, deleted documents included
+	 */
+	public int documentFrequency(String term) {
+		int df = 0;
+		for (int i = 0; i < segments.length; i++) {
+			int id = segments[i].getIndex().termId(term);
+			if (id >= 0) {
+				df += segments[i].getIndex().documentFrequency(id);
+			}
+		}
+		return df;
+	}
+
+	/**
+	 * @return average number of terms per document, deleted documents included like in maxDoc()
+	 */
+	public double averageDocumentLength() {
+		long total = 0;
+		for (int i = 0; i < segments.length; i++) {
+			total += segments[i].getIndex().totalLength();
+		}
+		return maxDoc == 0 ? 0 : (double) total / maxDoc;
+	}
+
+	/**
+	 * @param similarity ranking function
+	 * @return the document factors and idf cache of these segments for the similarity, created on first use
+	 */
+	ScoringStats stats(Similarity similarity) {
+		ScoringStats current = stats;
+		if (current == null || current.similarity != similarity) {
+			current = new ScoringStats(this, similarity); //two threads may both compute it, either result is right
+			stats = current;
+		}
+		return current;
+	}
+
+	/**
+	 * @param docId global document id
+	 * @return document name
+	 */
+	public String documentName(int docId) {
+		int s = segmentOf(docId);
+		return segments[s].getIndex().documentName(docId - bases[s]);
+	}
+
+	/**
+	 * @param docId global document id
+	 * @return absolute path of the document
+	 */
+	public String documentPath(int docId) {
+		int s = segmentOf(docId);
+		return segments[s].getIndex().documentPath(docId - bases[s]);
+	}
+
+	/**
+	 * @param segment segment to append
+	 * @return a copy of this index with the segment added at the end
+	 */
+	public SegmentedIndex withSegment(Segment segment) {
+		Segment copy[] = Arrays.copyOf(segments, segments.length + 1);
+		copy[segments.length] = segment;
+		return new SegmentedIndex(copy);
+	}
+
+	public String toString() {
+		return Arrays.toString(segments);
+	}
+}
@@ -0,0 +1,59 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * Similarity is the ranking function: how query terms are weighted and how much a posting adds to the score of
+ * its document. Every ranked query scores documents as
+ * <pre>
+ * {@code
+ *  score(d) = sum over the query terms t in d of weight(t) * score(tf(t, d), factor(d))
+ * }
+ * </pre>
+ * where weight(t) comes from {@link #queryWeights} and factor(d) is a per document constant computed once per
+ * published index by {@link #documentFactor}, so scoring a posting is a little arithmetic on primitives.<br>
+ * {@link CosineSimilarity} is the tf-idf cosine the engine always used, {@link BM25Similarity} is Okapi BM25.
+ * Implementations are immutable and shared by all threads.
+ */
+public abstract class Similarity {
+
+	/**
+	 * @param documentFrequency number of documents containing the term, at least 1
+	 * @param numDocs number of documents in the collection
+	 * @return inverse document frequency of the term
+	 */
+	public abstract double idf(int documentFrequency, int numDocs);
+
+	/**
+	 * @param queryFrequencies number of times each query term occurs in the query
+	 * @param idfs idf of each query term, 0 for a term that occurs nowhere
+	 * @param weights receives the weight of each query term
+	 */
+	public abstract void queryWeights(int queryFrequencies[], double idfs[], double weights[]);
+
+	/**
+	 * @param norm euclidean length of the (1+log tf) weighted document vector
+	 * @param length number of terms in the document
+	 * @param averageLength average number of terms per document in the collection
+	 * @return the constant {@link #score} gets for the document
+	 */
+	public abstract double documentFactor(double norm, int length, double averageLength);
+
+	/**
+	 * @param termFrequency number of times the term occurs in the document, at least 1
+	 * @param documentFactor the document's {@link #documentFactor}
+	 * @return what the posting adds to the score for a query term of weight 1
+	 */
+	public abstract double score(int termFrequency, double documentFactor);
+
+	/**
+	 * @param postings iterator whose block bounds have been moved with advanceShallow
+	 * @return at least the {@link #score} of any posting in the current block
+	 */
+	public abstract double blockBound(PostingIterator postings);
+
+	/**
+	 * @param postings iterator over a posting list
+	 * @return at least the {@link #score} of any posting in the list
+	 */
+	public abstract double listBound(PostingIterator postings);
+}
@@ -0,0 +1,99 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * StemCache remembers what the {@link Analyzer} made of recent tokens, keyed by the lower cased token, so that the
+ * Porter steps run once per distinct word instead of once per occurrence. Word frequencies are heavily skewed and a
+ * few thousand words make up most of any text, so most tokens are found here.<br>
+ * The table is direct mapped: a token can only sit in the slot its hash picks and a new token simply replaces the
+ * one there, so a frequent word pushed out by a rare one comes straight back. Tokens and terms are copied into
+ * fixed width slots of two flat char arrays, a lookup or an insert allocates nothing. Tokens longer than a slot are
+ * rare and seldom repeat, they are not cached.<br>
+ * Not thread safe, every analyzer has its own.
+ */
+final class StemCache {
+
+	/**
+	 * longest token that is cached
+	 */
+	static final int MAX_TOKEN_LENGTH = 24;
+
+	private final int mask;
+	private final char keys[]; //slot i holds its token at i * MAX_TOKEN_LENGTH
+	private final char values[]; //and the analyzed term at the same place
+	private final byte keyLengths[]; //0 for an empty slot
+	private final byte valueLengths[]; //0 if the token was dropped
+	private final int hashes[];
+
+	/**
+	 * @param size number of slots, rounded up to a power of 2
+	 */
+	StemCache(int size) {
+		int slots = Integer.highestOneBit(Math.max(1, size) * 2 - 1);
+		this.mask = slots - 1;
+		this.keys = new char[slots * MAX_TOKEN_LENGTH];
+		this.values = new char[slots * MAX_TOKEN_LENGTH];
+		this.keyLengths = new byte[slots];
+		this.valueLengths = new byte[slots];
+		this.hashes = new int[slots];
+	}
+
+	/**
+	 * @param token buffer holding the lower cased token
+	 * @param length number of characters of the token, 1 to {@link #MAX_TOKEN_LENGTH}
+	 * @param hash {@link #hash(char[], int)} of the token
+	 * @return the slot holding the token, or -1 if it is not cached
+	 */
+	int find(char token[], int length, int hash) {
+		int slot = hash & mask;
+		if (keyLengths[slot] != length || hashes[slot] != hash) {
+			return -1;
+		}
+		for (int i = 0, at = slot * MAX_TOKEN_LENGTH; i < length; i++, at++) {
+			if (keys[at] != token[i]) {
+				return -1;
+			}
+		}
+		return slot;
+	}
+
+	/**
+	 * copies the analyzed term of a cached token to the start of a buffer.
+	 * @param slot slot found by find
+	 * @param term buffer of at least {@link #MAX_TOKEN_LENGTH} characters
+	 * @return number of characters of the term, 0 if the token is dropped
+	 */
+	int term(int slot, char term[]) {
+		int length = valueLengths[slot];
+		System.arraycopy(values, slot * MAX_TOKEN_LENGTH, term, 0, length);
+		return length;
+	}
+
+	/**
+	 * caches the analyzed term of a token, replacing whatever token had the same slot.
+	 * @param token buffer holding the lower cased token
+	 * @param length number of characters of the token, 1 to {@link #MAX_TOKEN_LENGTH}
+	 * @param hash {@link #hash(char[], int)} of the token
+	 * @param term buffer holding the analyzed term
+	 * @param termLength number of characters of the term, 0 if the token was dropped
+	 */
+	void put(char token[], int length, int hash, char term[], int termLength) {
+		if (termLength > MAX_TOKEN_LENGTH) {
+			return; //the Porter steps never lengthen a word, but a slot must not overflow
+		}
+		int slot = hash & mask;
+		System.arraycopy(token, 0, keys, slot * MAX_TOKEN_LENGTH, length);
+		System.arraycopy(term, 0, values, slot * MAX_TOKEN_LENGTH, termLength);
+		keyLengths[slot] = (byte) length;
+		valueLengths[slot] = (byte) termLength;
+		hashes[slot] = hash;
+	}
+
+	static int hash(char token[], int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + token[i];
+		}
+		return h ^ (h >>> 16); //the low bits pick the slot
+	}
+}
@@ -0,0 +1,107 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+
+/**
+ * @author avijayvargiy <br>
+ * TermAtATimeScorer scores documents one query term at a time: every posting list is walked exactly once and
+ * its contribution is added into a score accumulator indexed by document id.<br>
+ * Only documents that contain at least one query term are ever touched; their ids are remembered so that
+ * reading the hits and resetting for the next query do not depend on the number of documents in the collection.<br>
+ * One scorer can score the segments of a segmented index one after the other; the accumulator grows to the
+ * largest segment. What a posting adds is up to the {@link Similarity}.
+ * <pre>
+ * {@code
+ *  scorer.reset(index, similarity, documentFactors);
+ *  scorer.add(postings of term 1, query weight of term 1);
+ *  scorer.add(postings of term 2, query weight of term 2);
+ *  for (int i = 0; i < scorer.hitCount(); i++) scorer.score(scorer.hit(i));
+ * }
+ * </pre>
+ */
+public class TermAtATimeScorer {
+
+	private InvertedIndex index;
+	private Similarity similarity;
+	private double factors[]; //document id -> document factor of the similarity
+	private double scores[]; //accumulator, one slot per document id
+	private int hits[]; //ids of the documents with a non zero accumulator
+	private int hitCount;
+
+	/**
+	 * scorer without an index yet, call {@link #reset(InvertedIndex, Similarity, double[])} before adding postings.
+	 */
+	public TermAtATimeScorer() {
+		this.scores = new double[0];
+		this.hits = new int[16];
+	}
+
+	/**
+	 * clears the accumulators touched by the previous query.
+	 */
+	public void reset() {
+		for (int i = 0; i < hitCount; i++) {
+			scores[hits[i]] = 0.0;
+		}
+		hitCount = 0;
+	}
+
+	/**
+	 * clears the accumulators and switches to scoring the documents of another index, for example the next segment.
+	 * @param index index holding the documents to score
+	 * @param similarity ranking function
+	 * @param documentFactors the similarity's document factor of every document of the index
+	 */
+	public void reset(InvertedIndex index, Similarity similarity, double documentFactors[]) {
+		reset();
+		this.index = index;
+		this.similarity = similarity;
+		this.factors = documentFactors;
+		if (scores.length < index.numDocs()) {
+			scores = new double[index.numDocs()];
+		}
+	}
+
+	/**
+	 * adds the similarity's score of every posting times queryWeight to the accumulator of its document.
+	 * @param postings posting list of one query term
+	 * @param queryWeight weight of the term in the query
+	 */
+	public void add(PostingIterator postings, double queryWeight) {
+		if (queryWeight == 0.0) {
+			return;
+		}
+		for (int doc = postings.nextDoc(); doc != PostingIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+			if (scores[doc] == 0.0) {
+				if (hitCount == hits.length) {
+					hits = Arrays.copyOf(hits, Math.min(hitCount * 2, index.numDocs()));
+				}
+				hits[hitCount++] = doc;
+			}
+			scores[doc] += similarity.score(postings.termFrequency(), factors[doc]) * queryWeight;
+		}
+	}
+
+	/**
+	 * @return number of documents that matched at least one query term
+	 */
+	public int hitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @param index 0 to hitCount()-1
+	 * @return document id of that hit, hits are in no particular order
+	 */
+	public int hit(int index) {
+		return hits[index];
+	}
+
+	/**
+	 * @param docId document id
+	 * @return accumulated score, 0 for documents that matched no query term
+	 */
+	public double score(int docId) {
+		return scores[docId];
+	}
+}
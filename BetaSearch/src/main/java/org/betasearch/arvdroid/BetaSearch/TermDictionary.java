@@ -0,0 +1,227 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * @author avijayvargiy <br>
+ * TermDictionary maps every distinct term of the collection to a dense integer term id.<br>
+ * It is an open addressing hash table with linear probing, so looking up a term costs a hash and
+ * (almost always) a single string compare instead of a walk over the whole dictionary.<br>
+ * Ids are handed out in insertion order; the alphabetical view is materialized once with {@link #sortedIds()}.<br>
+ * It is the dictionary of an index being built; a frozen {@link IndexSnapshot} keeps its terms in {@link FrontCodedTerms}.
+ */
+public class TermDictionary {
+
+	private static final int EMPTY = -1;
+	private static final int INITIAL_CAPACITY = 1024; //number of slots, always a power of two
+
+	private int[] slots; //slot -> term id or EMPTY
+	private String[] terms; //term id -> term
+	private int[] hashes; //term id -> cached hash so growing does not rehash the strings
+	private int size;
+
+	public TermDictionary() {
+		this(INITIAL_CAPACITY / 2);
+	}
+
+	/**
+	 * @param expectedTerms number of distinct terms expected, used to size the table up front
+	 */
+	public TermDictionary(int expectedTerms) {
+		int capacity = INITIAL_CAPACITY;
+		while (capacity < expectedTerms * 2) {
+			capacity <<= 1;
+		}
+		slots = new int[capacity];
+		Arrays.fill(slots, EMPTY);
+		terms = new String[capacity / 2];
+		hashes = new int[capacity / 2];
+	}
+
+	/**
+	 * @param term term to look up
+	 * @return id of the term, or -1 if the term is not in the dictionary
+	 */
+	public int get(String term) {
+		int h = hash(term);
+		int mask = slots.length - 1;
+		for (int slot = h & mask;; slot = (slot + 1) & mask) {
+			int id = slots[slot];
+			if (id == EMPTY) {
+				return -1;
+			}
+			if (hashes[id] == h && terms[id].equals(term)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * adds the term if it is not present yet.
+	 * @param term term to add
+	 * @return id of the term; a new term gets id {@link #size()} - 1 after the call
+	 */
+	public int add(String term) {
+		int h = hash(term);
+		int mask = slots.length - 1;
+		int slot = h & mask;
+		while (true) {
+			int id = slots[slot];
+			if (id == EMPTY) {
+				break;
+			}
+			if (hashes[id] == h && terms[id].equals(term)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int id = size++;
+		terms[id] = term;
+		hashes[id] = h;
+		slots[slot] = id;
+		if (size == terms.length) {
+			grow();
+		}
+		return id;
+	}
+
+	/**
+	 * same as {@link #get(String)} for a term held in a char buffer, no String is created.
+	 * @param buffer characters of the term
+	 * @param length number of characters used from the start of buffer
+	 * @return id of the term, or -1 if the term is not in the dictionary
+	 */
+	public int get(char buffer[], int length) {
+		int h = hash(buffer, length);
+		int mask = slots.length - 1;
+		for (int slot = h & mask;; slot = (slot + 1) & mask) {
+			int id = slots[slot];
+			if (id == EMPTY) {
+				return -1;
+			}
+			if (hashes[id] == h && matches(terms[id], buffer, length)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * same as {@link #add(String)} for a term held in a char buffer; a String is only created when the term is new.
+	 * @param buffer characters of the term
+	 * @param length number of characters used from the start of buffer
+	 * @return id of the term
+	 */
+	public int add(char buffer[], int length) {
+		int h = hash(buffer, length);
+		int mask = slots.length - 1;
+		int slot = h & mask;
+		while (true) {
+			int id = slots[slot];
+			if (id == EMPTY) {
+				break;
+			}
+			if (hashes[id] == h && matches(terms[id], buffer, length)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int id = size++;
+		terms[id] = new String(buffer, 0, length);
+		hashes[id] = h;
+		slots[slot] = id;
+		if (size == terms.length) {
+			grow();
+		}
+		return id;
+	}
+
+	/**
+	 * @param id term id
+	 * @return term stored under that id
+	 */
+	public String term(int id) {
+		return terms[id];
+	}
+
+	/**
+	 * @return number of distinct terms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return all term ids ordered alphabetically by their term
+	 */
+	public int[] sortedIds() {
+		Integer boxed[] = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			boxed[i] = i;
+		}
+		Arrays.sort(boxed, new Comparator < Integer > () {
+			public int compare(Integer a, Integer b) {
+				return terms[a].compareTo(terms[b]);
+			}
+		});
+		int ids[] = new int[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = boxed[i];
+		}
+		return ids;
+	}
+
+	/*
+	 * doubles the table; the load factor never goes above one half.
+	 */
+	private void grow() {
+		int capacity = slots.length * 2;
+		int mask = capacity - 1;
+		slots = new int[capacity];
+		Arrays.fill(slots, EMPTY);
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (slots[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id;
+		}
+		terms = Arrays.copyOf(terms, capacity / 2);
+		hashes = Arrays.copyOf(hashes, capacity / 2);
+	}
+
+	/*
+	 * spreads the bits of String.hashCode() so that linear probing over the low bits behaves.
+	 */
+	private static int hash(String term) {
+		return spread(term.hashCode());
+	}
+
+	/*
+	 * String.hashCode() of the characters, spread the same way as hash(String).
+	 */
+	private static int hash(char buffer[], int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + buffer[i];
+		}
+		return spread(h);
+	}
+
+	private static int spread(int hashCode) {
+		int h = hashCode * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean matches(String term, char buffer[], int length) {
+		if (term.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (term.charAt(i) != buffer[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
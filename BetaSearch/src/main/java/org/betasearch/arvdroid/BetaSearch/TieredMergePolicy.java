@@ -0,0 +1,103 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @author avijayvargiy <br>
+ * TieredMergePolicy decides which segments to merge next.<br>
+ * Segments are grouped into tiers by their number of live documents: tier 0 holds everything up to
+ * minSegmentDocs, every following tier is mergeFactor times larger. As soon as a tier holds mergeFactor segments
+ * the smallest mergeFactor of them are merged into one segment of the next tier, so the number of segments stays
+ * logarithmic in the size of the collection and every document is copied about once per tier.<br>
+ * A segment whose deleted documents exceed maxDeletedRatio is merged on its own to reclaim them.<br>
+ * Only segments held on the heap take part. A segment mapped from an index file, as {@link SearchEngine#open(File)}
+ * and a spilled build give, may not fit in the heap the merged segment is built in, so it is never merged in the
+ * background; {@link SearchEngine#forceMerge()} still merges everything when asked to.
+ */
+public class TieredMergePolicy {
+
+	private int mergeFactor = 10;
+	private int minSegmentDocs = 100;
+	private double maxDeletedRatio = 0.2;
+
+	/**
+	 * @param index the published segments
+	 * @return segments to merge into one, or null if no merge is needed
+	 */
+	public List < Segment > findMerge(SegmentedIndex index) {
+		List < List < Segment >> tiers = new ArrayList < List < Segment >> ();
+		for (int i = 0; i < index.segmentCount(); i++) {
+			Segment segment = index.segment(i);
+			if (!(segment.getIndex() instanceof IndexSnapshot)) {
+				continue; //mapped, merging would copy it onto the heap
+			}
+			if (segment.deletedDocs() > maxDeletedRatio * segment.maxDoc()) {
+				return Collections.singletonList(segment);
+			}
+			int tier = tier(segment.numDocs());
+			while (tiers.size() <= tier) {
+				tiers.add(new ArrayList < Segment > ());
+			}
+			tiers.get(tier).add(segment);
+		}
+		for (List < Segment > tier : tiers) {
+			if (tier.size() >= mergeFactor) {
+				Collections.sort(tier, new Comparator < Segment > () {
+					public int compare(Segment a, Segment b) {
+						return Integer.compare(a.numDocs(), b.numDocs());
+					}
+				});
+				return new ArrayList < Segment > (tier.subList(0, mergeFactor));
+			}
+		}
+		return null;
+	}
+
+	private int tier(int docs) {
+		int tier = 0;
+		for (long limit = minSegmentDocs; docs > limit; limit *= mergeFactor) {
+			tier++;
+		}
+		return tier;
+	}
+
+	public int getMergeFactor() {
+		return mergeFactor;
+	}
+
+	/**
+	 * @param mergeFactor number of segments of one tier merged at once, at least 2
+	 */
+	public void setMergeFactor(int mergeFactor) {
+		if (mergeFactor < 2) {
+			throw new IllegalArgumentException("merge factor must be at least 2: " + mergeFactor);
+		}
+		this.mergeFactor = mergeFactor;
+	}
+
+	public int getMinSegmentDocs() {
+		return minSegmentDocs;
+	}
+
+	/**
+	 * @param minSegmentDocs size up to which segments are all considered to be in the smallest tier
+	 */
+	public void setMinSegmentDocs(int minSegmentDocs) {
+		this.minSegmentDocs = Math.max(1, minSegmentDocs);
+	}
+
+	public double getMaxDeletedRatio() {
+		return maxDeletedRatio;
+	}
+
+	/**
+	 * @param maxDeletedRatio fraction of deleted documents above which a segment is rewritten on its own
+	 */
+	public void setMaxDeletedRatio(double maxDeletedRatio) {
+		this.maxDeletedRatio = maxDeletedRatio;
+	}
+}
@@ -0,0 +1,133 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * TopKCollector keeps the k best scoring documents seen so far in a bounded binary min-heap,
+ * so picking the top k out of n scored documents costs O(n log k) instead of sorting all of them.<br>
+ * The root of the heap is the weakest of the current top k; a new document only enters if it beats the root.
+ * Ties on score are broken in favour of the lower document id.
+ */
+public class TopKCollector {
+
+	private int docs[];
+	private double scores[];
+	private int k;
+	private int size;
+
+	/**
+	 * @param k maximum number of documents to keep
+	 */
+	public TopKCollector(int k) {
+		reset(k);
+	}
+
+	/**
+	 * empties the collector so that it can be reused for the next query.
+	 * @param k maximum number of documents to keep
+	 */
+	public void reset(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k must not be negative: " + k);
+		}
+		if (docs == null || docs.length < k) {
+			docs = new int[k];
+			scores = new double[k];
+		}
+		this.k = k;
+		this.size = 0;
+	}
+
+	/**
+	 * offers a scored document to the collector.
+	 * @param docId document id
+	 * @param score score of the document
+	 */
+	public void collect(int docId, double score) {
+		if (size < k) {
+			docs[size] = docId;
+			scores[size] = score;
+			siftUp(size++);
+		} else if (k > 0 && worse(docs[0], scores[0], docId, score)) {
+			docs[0] = docId;
+			scores[0] = score;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * @return lowest score that can still enter the top k, or negative infinity while the heap is not full
+	 */
+	public double minCompetitiveScore() {
+		return size < k || k == 0 ? Double.NEGATIVE_INFINITY : scores[0];
+	}
+
+	/**
+	 * @return number of documents collected, at most k
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * drains the heap into the given arrays, best document first. The collector is empty afterwards.
+	 * @param docIds receives the document ids, length at least size()
+	 * @param docScores receives the scores, length at least size()
+	 * @return number of documents written
+	 */
+	public int drain(int docIds[], double docScores[]) {
+		int n = size;
+		for (int i = n - 1; i >= 0; i--) {
+			docIds[i] = docs[0];
+			docScores[i] = scores[0];
+			size--;
+			docs[0] = docs[size];
+			scores[0] = scores[size];
+			siftDown(0);
+		}
+		return n;
+	}
+
+	/*
+	 * true if (docA, scoreA) ranks below (docB, scoreB).
+	 */
+	private static boolean worse(int docA, double scoreA, int docB, double scoreB) {
+		return scoreA < scoreB || (scoreA == scoreB && docA > docB);
+	}
+
+	private void siftUp(int i) {
+		int doc = docs[i];
+		double score = scores[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!worse(doc, score, docs[parent], scores[parent])) {
+				break;
+			}
+			docs[i] = docs[parent];
+			scores[i] = scores[parent];
+			i = parent;
+		}
+		docs[i] = doc;
+		scores[i] = score;
+	}
+
+	private void siftDown(int i) {
+		int doc = docs[i];
+		double score = scores[i];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if (right < size && worse(docs[right], scores[right], docs[child], scores[child])) {
+				child = right;
+			}
+			if (!worse(docs[child], scores[child], doc, score)) {
+				break;
+			}
+			docs[i] = docs[child];
+			scores[i] = scores[child];
+			i = child;
+		}
+		docs[i] = doc;
+		scores[i] = score;
+	}
+}
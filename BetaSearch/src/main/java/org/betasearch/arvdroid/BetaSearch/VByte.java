@@ -0,0 +1,47 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+/**
+ * @author avijayvargiy <br>
+ * VByte is the variable byte code used for posting lists: a non negative int is written 7 bits at a time,
+ * lowest bits first, and every byte but the last has its high bit set. Small numbers, such as the gaps between
+ * neighbouring document ids and most term frequencies, take a single byte instead of four.<br>
+ * Decoding is done inline by the posting iterators, which have to return two numbers per posting.
+ */
+public final class VByte {
+
+	/**
+	 * longest encoding of an int
+	 */
+	public static final int MAX_BYTES = 5;
+
+	private VByte() {
+	}
+
+	/**
+	 * @param bytes destination, needs room for {@link #length(int)} bytes at position
+	 * @param position where to write
+	 * @param value non negative number
+	 * @return position after the written bytes
+	 */
+	public static int write(byte bytes[], int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[position++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * @param value non negative number
+	 * @return number of bytes its encoding takes
+	 */
+	public static int length(int value) {
+		int length = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			length++;
+		}
+		return length;
+	}
+}
@@ -0,0 +1,103 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the analyzer shared by indexing and querying.
+ */
+public class AnalyzerTest 
+    extends TestCase
+{
+    private final List<String> terms = new ArrayList<String>();
+    private final Analyzer.TermConsumer collect = new Analyzer.TermConsumer()
+    {
+        public void accept( char term[], int length )
+        {
+            terms.add( new String( term, 0, length ) );
+        }
+    };
+
+    public void testStemsLowerCasesAndDropsNonLetters()
+    {
+        new Analyzer().analyze( "The Hobbits were  running\t2011 ring's", collect );
+        assertEquals( "[the, hobbit, were, run, ring]", terms.toString() );
+    }
+
+    public void testTokensSpanningChunksAreJoined()
+    {
+        Analyzer analyzer = new Analyzer();
+        char text[] = "caresses ponies meetings".toCharArray();
+        analyzer.feed( text, 0, 5, collect );
+        analyzer.feed( text, 5, 11, collect );
+        analyzer.feed( text, 16, text.length - 16, collect );
+        analyzer.end( collect );
+        assertEquals( "[caress, poni, meet]", terms.toString() );
+    }
+
+    public void testStemCacheGivesTheSameTerms()
+    {
+        String text = "Rings ring's 2011 ringing RINGS the hobbits hobbit's running runs ran the 42 the";
+        new Analyzer( 0 ).analyze( text, collect );
+        String uncached = terms.toString();
+        //a cache of 4 slots keeps replacing its words while analyzing
+        for ( int size : new int[] { 3, Analyzer.DEFAULT_STEM_CACHE_SIZE } )
+        {
+            Analyzer analyzer = new Analyzer( size );
+            for ( int round = 0; round < 3; round++ )
+            {
+                terms.clear();
+                analyzer.analyze( text, collect );
+                assertEquals( uncached, terms.toString() );
+            }
+        }
+    }
+
+    public void testDocumentReaderDecodesAcrossBufferBoundaries() throws Exception
+    {
+        String text = "\u00DCber caf\u00E9 na\u00EFve \u00C9COLE gar\u00E7ons\nthe hobbit's ring  d\u00E9j\u00E0 vu";
+        new Analyzer().analyze( text, collect );
+        String expected = terms.toString();
+        File file = File.createTempFile( "betasearch", ".txt" );
+        try
+        {
+            FileOutputStream out = new FileOutputStream( file );
+            out.write( new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF } ); //byte order mark
+            out.write( text.getBytes( "UTF-8" ) );
+            out.close();
+            //7 bytes at a time cuts tokens and two byte characters apart
+            DocumentReader reader = new DocumentReader( Charset.forName( "UTF-8" ), 7 );
+            for ( int round = 0; round < 2; round++ )
+            {
+                terms.clear();
+                FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+                reader.read( channel, new Analyzer(), collect );
+                channel.close();
+                assertEquals( expected, terms.toString() );
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    public void testLongTokens()
+    {
+        StringBuilder longWord = new StringBuilder();
+        for ( int i = 0; i < 500; i++ )
+        {
+            longWord.append( 'a' );
+        }
+        new Analyzer().analyze( longWord, collect );
+        assertEquals( 1, terms.size() );
+        assertEquals( 500, terms.get( 0 ).length() );
+    }
+}
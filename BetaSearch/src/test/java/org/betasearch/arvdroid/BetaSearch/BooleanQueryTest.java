@@ -0,0 +1,91 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the boolean query parser and the conjunction and disjunction iterators.
+ */
+public class BooleanQueryTest 
+    extends TestCase
+{
+    public void testParsesPrecedenceAndImplicitAnd()
+    {
+        Analyzer analyzer = new Analyzer();
+        assertEquals( "(hobbit AND ring)", BooleanQuery.parse( "hobbit ring", analyzer ).toString() );
+        assertEquals( "((hobbit AND ring) OR river)", BooleanQuery.parse( "Hobbit AND ring OR river", analyzer ).toString() );
+        assertEquals( "(hobbit AND (ring OR river) AND NOT dragon)",
+                      BooleanQuery.parse( "hobbit (ring OR river) NOT dragon", analyzer ).toString() );
+        assertEquals( "(hobbit AND or)", BooleanQuery.parse( "hobbit or", analyzer ).toString() );
+        assertEquals( "ring", BooleanQuery.parse( "ring AND 1954", analyzer ).toString() );
+        assertNull( BooleanQuery.parse( "1954", analyzer ) );
+    }
+
+    public void testRejectsMalformedQueries()
+    {
+        String malformed[] = { "(hobbit ring", "hobbit ring)", "hobbit AND", "OR ring", "NOT", "()" };
+        for ( String query : malformed )
+        {
+            try
+            {
+                BooleanQuery.parse( query, new Analyzer() );
+                fail( query );
+            }
+            catch ( IllegalArgumentException expected )
+            {
+            }
+        }
+    }
+
+    public void testIntersectsUnitesAndExcludes()
+    {
+        PostingList evens = list( 0, 1000, 2 );
+        PostingList threes = list( 0, 1000, 3 );
+        PostingList fives = list( 0, 1000, 5 );
+        DocIterator and = new ConjunctionIterator( new DocIterator[] { evens.iterator( null ), threes.iterator( null ) },
+                                                   new DocIterator[] { fives.iterator( null ) } );
+        DocIterator or = new DisjunctionIterator( new DocIterator[] { threes.iterator( null ), fives.iterator( null ) } );
+        for ( int doc = next( -1, 1000, true ); ; doc = next( doc, 1000, true ) )
+        {
+            assertEquals( doc, and.nextDoc() );
+            if ( doc == DocIterator.NO_MORE_DOCS )
+            {
+                break;
+            }
+        }
+        for ( int doc = next( -1, 1000, false ); ; doc = next( doc, 1000, false ) )
+        {
+            assertEquals( doc, or.nextDoc() );
+            if ( doc == DocIterator.NO_MORE_DOCS )
+            {
+                break;
+            }
+        }
+        and = new ConjunctionIterator( new DocIterator[] { evens.iterator( null ), threes.iterator( null ) }, new DocIterator[0] );
+        assertEquals( 702, and.advance( 700 ) );
+        assertEquals( 702, and.advance( 701 ) );
+        assertEquals( 708, and.nextDoc() );
+    }
+
+    private static int next( int doc, int maxDoc, boolean and )
+    {
+        for ( int d = doc + 1; d < maxDoc; d++ )
+        {
+            if ( and ? d % 6 == 0 && d % 5 != 0 : d % 3 == 0 || d % 5 == 0 )
+            {
+                return d;
+            }
+        }
+        return DocIterator.NO_MORE_DOCS;
+    }
+
+    private static PostingList list( int from, int to, int step )
+    {
+        PostingList list = new PostingList();
+        for ( int doc = from; doc < to; doc += step )
+        {
+            list.add( doc, 1 );
+        }
+        list.trim();
+        return list;
+    }
+}
@@ -0,0 +1,123 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for finding the documents of a directory tree.
+ */
+public class FilterTest
+    extends TestCase
+{
+    private File dir;
+
+    protected void setUp() throws IOException
+    {
+        dir = File.createTempFile( "betasearch", "" );
+        dir.delete();
+        dir.mkdir();
+        touch( "top.txt" );
+        touch( "notes.md" );
+        touch( "books/hobbit.txt" );
+        touch( "books/drafts/hobbit.txt" );
+        touch( "books/drafts/old.txt.bak" );
+        touch( "archive/2011/river.txt" );
+    }
+
+    protected void tearDown()
+    {
+        delete( dir );
+    }
+
+    public void testFindsTextFilesOfTheWholeTree()
+    {
+        assertEquals( "[archive/2011/river.txt, books/drafts/hobbit.txt, books/hobbit.txt, top.txt]",
+                      found( new Filter() ) );
+    }
+
+    public void testNonRecursive()
+    {
+        Filter filter = new Filter();
+        filter.setRecursive( false );
+        assertEquals( "[top.txt]", found( filter ) );
+    }
+
+    public void testIncludeAndExcludeGlobs()
+    {
+        assertEquals( "[notes.md, top.txt]", found( new Filter( Arrays.asList( "*.md", "top.*" ),
+                                                                Collections.<String>emptyList() ) ) );
+        //a glob with a slash is matched against the path, an excluded directory is not walked into
+        assertEquals( "[books/hobbit.txt, top.txt]", found( new Filter( Arrays.asList( "*.txt" ),
+                                                                        Arrays.asList( "archive", "books/drafts" ) ) ) );
+        assertEquals( "[archive/2011/river.txt]", found( new Filter( Arrays.asList( "archive/**" ),
+                                                                     Collections.<String>emptyList() ) ) );
+        assertEquals( "[books/drafts/old.txt.bak, top.txt]", found( new Filter( Arrays.asList( "*.bak", "*.txt" ),
+                                                                                Arrays.asList( "books/*.txt", "*/*/*.txt" ) ) ) );
+    }
+
+    public void testMissingDirectory()
+    {
+        try
+        {
+            new Filter().finder( new File( dir, "missing" ).getPath() );
+            fail( "a missing directory must not look like an empty one" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+        SearchEngine se = new SearchEngine( new File( dir, "top.txt" ).getPath(), ResultType.DOCUMENT_NAME );
+        try
+        {
+            se.build();
+            fail( "a file is not a directory" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    /*
+     * the paths relative to dir of what the filter finds, sorted.
+     */
+    private String found( Filter filter )
+    {
+        List<String> paths = new ArrayList<String>();
+        for ( File f : filter.finder( dir.getPath() ) )
+        {
+            paths.add( dir.toURI().relativize( f.toURI() ).getPath() );
+        }
+        Collections.sort( paths );
+        return paths.toString();
+    }
+
+    private void touch( String path ) throws IOException
+    {
+        File f = new File( dir, path );
+        f.getParentFile().mkdirs();
+        FileWriter w = new FileWriter( f );
+        w.write( "text" );
+        w.close();
+    }
+
+    private static void delete( File f )
+    {
+        File children[] = f.listFiles();
+        if ( children != null )
+        {
+            for ( File c : children )
+            {
+                delete( c );
+            }
+        }
+        f.delete();
+    }
+}
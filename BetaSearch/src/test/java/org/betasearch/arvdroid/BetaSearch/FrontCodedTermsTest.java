@@ -0,0 +1,73 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the front coded off-heap term dictionary.
+ */
+public class FrontCodedTermsTest
+    extends TestCase
+{
+    public void testLooksUpAndIteratesInOrder()
+    {
+        List<String> terms = new ArrayList<String>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            terms.add( "ring" + i );
+            terms.add( "hobbit" + ( i * 7 ) );
+        }
+        //non ASCII terms, including a supplementary character that UTF-8 sorts after U+FFxx but UTF-16 before
+        terms.add( "caf\u00e9" );
+        terms.add( "cafe" );
+        terms.add( "\ud835\udc9c" );
+        terms.add( "\uff21" );
+        terms.add( "r" );
+        Collections.sort( terms );
+        FrontCodedTerms.Builder builder = new FrontCodedTerms.Builder();
+        for ( String term : terms )
+        {
+            builder.add( term );
+        }
+        FrontCodedTerms dictionary = builder.build();
+        assertEquals( terms.size(), dictionary.size() );
+        for ( int id = 0; id < terms.size(); id++ )
+        {
+            assertEquals( id, dictionary.termId( terms.get( id ) ) );
+            assertEquals( terms.get( id ), dictionary.term( id ) );
+        }
+        List<String> iterated = new ArrayList<String>();
+        for ( String term : dictionary )
+        {
+            iterated.add( term );
+        }
+        assertEquals( terms, iterated );
+        assertEquals( -1, dictionary.termId( "" ) );
+        assertEquals( -1, dictionary.termId( "a" ) );
+        assertEquals( -1, dictionary.termId( "ring" ) );
+        assertEquals( -1, dictionary.termId( "ring10000" ) );
+        assertEquals( -1, dictionary.termId( "hobbit8" ) );
+        assertEquals( -1, dictionary.termId( "zzz" ) );
+        assertEquals( -1, dictionary.termId( "\uffff" ) );
+    }
+
+    public void testEmptyAndUnordered()
+    {
+        FrontCodedTerms empty = new FrontCodedTerms.Builder().build();
+        assertEquals( 0, empty.size() );
+        assertEquals( -1, empty.termId( "ring" ) );
+        assertFalse( empty.iterator().hasNext() );
+        try
+        {
+            new FrontCodedTerms.Builder().add( "ring" ).add( "hobbit" );
+            fail( "terms out of order" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the VByte compressed posting list.
+ */
+public class PostingListTest 
+    extends TestCase
+{
+    public void testDecodesWhatWasAdded()
+    {
+        int docs[] = { 0, 1, 127, 128, 300, 16384, 2000000, Integer.MAX_VALUE - 1 };
+        int tfs[] = { 1, 127, 128, 5, 16383, 16384, 1, 300 };
+        PostingList list = new PostingList();
+        for ( int i = 0; i < docs.length; i++ )
+        {
+            list.add( docs[i], tfs[i] );
+        }
+        list.trim();
+        assertEquals( docs.length, list.size() );
+        PostingIterator it = list.iterator( null );
+        for ( int i = 0; i < docs.length; i++ )
+        {
+            assertEquals( docs[i], it.nextDoc() );
+            assertEquals( docs[i], it.docId() );
+            assertEquals( tfs[i], it.termFrequency() );
+        }
+        assertEquals( PostingIterator.NO_MORE_DOCS, it.nextDoc() );
+    }
+
+    public void testOccurrencesGrowTheLastFrequencyInPlace()
+    {
+        PostingList list = new PostingList();
+        assertTrue( list.addOccurrence( 3 ) );
+        for ( int i = 1; i < 200; i++ )
+        {
+            assertFalse( list.addOccurrence( 3 ) );
+        }
+        assertTrue( list.addOccurrence( 9 ) );
+        assertEquals( 1, list.lastTermFrequency() );
+        assertEquals( 5, list.byteSize() ); //gap 3, tf 200 in two bytes, gap 6, tf 1
+        PostingIterator it = list.iterator( null );
+        assertEquals( 3, it.nextDoc() );
+        assertEquals( 200, it.termFrequency() );
+        assertEquals( 9, it.nextDoc() );
+        assertEquals( 1, it.termFrequency() );
+        assertEquals( PostingIterator.NO_MORE_DOCS, it.nextDoc() );
+    }
+
+    public void testAdvanceUsesSkipsAndKeepsBlockBounds()
+    {
+        PostingList list = new PostingList();
+        DocumentTable documents = new DocumentTable();
+        for ( int doc = 0; doc < 1000; doc++ )
+        {
+            documents.add( "d" + doc, "/d" + doc );
+            documents.setNorm( doc, 1 + doc % 7 );
+            if ( doc % 3 == 0 )
+            {
+                list.add( doc, 1 + doc % 5 );
+            }
+        }
+        list.buildSkips( documents );
+        PostingIterator it = list.iterator( null );
+        assertEquals( 381, it.blockLastDoc() ); //128th multiple of 3
+        assertEquals( 0, it.advance( 0 ) );
+        assertEquals( 501, it.advance( 500 ) );
+        assertEquals( 501, it.advance( 501 ) );
+        assertEquals( 2, it.termFrequency() );
+        assertEquals( 504, it.nextDoc() );
+        it.advanceShallow( 900 );
+        assertTrue( it.blockLastDoc() >= 900 );
+        assertEquals( 5, it.blockMaxTermFrequency() );
+        assertEquals( 1 + Math.log( 5 ), it.blockMaxImpact() ); //doc 924 has tf 5 and norm 1
+        assertEquals( 999, it.advance( 998 ) );
+        assertEquals( PostingIterator.NO_MORE_DOCS, it.advance( 1000 ) );
+
+        PostingList shortList = new PostingList();
+        shortList.add( 4, 2 );
+        shortList.buildSkips( documents );
+        it = shortList.iterator( null );
+        assertEquals( Integer.MAX_VALUE, it.maxTermFrequency() );
+        assertEquals( 4, it.advance( 2 ) );
+    }
+
+    public void testPositionsDecodeOnlyWhereAskedFor()
+    {
+        PostingList list = new PostingList( true );
+        DocumentTable documents = new DocumentTable();
+        for ( int doc = 0; doc < 1000; doc++ )
+        {
+            documents.add( "d" + doc, "/d" + doc );
+            documents.setNorm( doc, 1 );
+            for ( int i = 0; i <= doc % 4; i++ )
+            {
+                list.addOccurrence( doc, doc + 200 * i );
+            }
+        }
+        list.trim();
+        list.buildSkips( documents );
+        PostingIterator it = list.iterator( null );
+        assertEquals( 0, it.nextDoc() );
+        assertEquals( 1, it.nextDoc() );
+        assertEquals( 1, it.nextPosition() ); //the positions of document 0 are stepped over
+        assertEquals( 2, it.nextDoc() ); //the second position of document 1 is never read
+        assertEquals( 2, it.nextPosition() );
+        assertEquals( 202, it.nextPosition() );
+        assertEquals( 402, it.nextPosition() );
+        assertEquals( 703, it.advance( 703 ) ); //jumps over whole blocks, positions included
+        assertEquals( 4, it.termFrequency() );
+        assertEquals( 703, it.nextPosition() );
+        assertEquals( 903, it.nextPosition() );
+        assertEquals( 1103, it.nextPosition() );
+        assertEquals( 1303, it.nextPosition() );
+        assertEquals( 704, it.advance( 704 ) );
+        assertEquals( 704, it.nextPosition() );
+
+        try
+        {
+            new PostingList().iterator( null ).nextPosition();
+            fail();
+        }
+        catch ( IllegalStateException expected )
+        {
+        }
+    }
+}
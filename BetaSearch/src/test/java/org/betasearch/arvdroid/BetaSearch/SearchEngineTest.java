@@ -0,0 +1,691 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * End to end tests of building an index over a small directory and querying it.
+ */
+public class SearchEngineTest 
+    extends TestCase
+{
+    private File dir;
+
+    protected void setUp() throws IOException
+    {
+        dir = File.createTempFile( "betasearch", "" );
+        dir.delete();
+        dir.mkdir();
+        write( "hobbit.txt", "In a hole in the ground there lived a hobbit. The hobbit had a ring." );
+        write( "ring.txt", "One ring to rule them all, one ring to find them." );
+        write( "river.txt", "Rahel walked to the river with her brother." );
+        write( "notes.md", "hobbit hobbit hobbit" );
+    }
+
+    protected void tearDown()
+    {
+        delete( dir );
+    }
+
+    public void testRanksMatchingDocumentsOnly()
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        assertEquals( 3, se.getN() );
+        SearchResult hits[] = se.query( "hobbit ring", 10 );
+        assertEquals( 2, hits.length );
+        assertEquals( "hobbit", hits[0].getName() );
+        assertEquals( "ring", hits[1].getName() );
+        assertTrue( hits[0].getScore() >= hits[1].getScore() );
+        assertEquals( 1, se.query( "hobbit ring", 1 ).length );
+        assertEquals( 0, se.query( "dragon", 10 ).length );
+    }
+
+    public void testBuildReportsTheDocumentsItFinds()
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        final List<String> found = new ArrayList<String>();
+        se.setProgress( new Filter.DocumentConsumer()
+        {
+            public void accept( File document, java.nio.file.attribute.BasicFileAttributes attributes )
+            {
+                found.add( document.getName() );
+            }
+        } );
+        se.build();
+        java.util.Collections.sort( found );
+        assertEquals( "[hobbit.txt, ring.txt, river.txt]", found.toString() );
+        se.setProgress( null );
+        se.build();
+        assertEquals( 3, se.getN() );
+    }
+
+    public void testLegacyQueryFormatsResults() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        String result[] = se.query( "rahel" );
+        assertEquals( 1, result.length );
+        assertEquals( "river.txt", result[0] );
+    }
+
+    @SuppressWarnings( "deprecation" )
+    public void testLegacyWordsKeepTheirTerms()
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        List<Dictionary> words = se.getWords();
+        java.util.Collections.shuffle( words, new java.util.Random( 7 ) );
+        java.util.Collections.sort( words );
+        List<String> sorted = new ArrayList<String>();
+        for ( Dictionary d : words )
+        {
+            sorted.add( d.term );
+        }
+        List<String> iterated = new ArrayList<String>();
+        for ( String term : se.getDictionary() )
+        {
+            iterated.add( term );
+        }
+        assertEquals( iterated, sorted );
+        assertEquals( index( se ).numTerms(), sorted.size() );
+
+        //a snapshot takes the posting lists of the entries it is given and leaves the entries alone
+        Dictionary ring = new Dictionary();
+        ring.term = "ring";
+        ring.list = new PostingList( false );
+        IndexSnapshot snapshot = new IndexSnapshot( new FrontCodedTerms.Builder().add( "ring" ).build(),
+                                                    new Dictionary[] { ring }, new DocumentTable(), false );
+        assertEquals( "ring", ring.term );
+        assertEquals( "ring", snapshot.word( 0 ).term );
+        assertSame( ring.list, snapshot.postings( 0 ) );
+    }
+
+    public void testParallelBuildMatchesSequentialBuild()
+    {
+        SearchEngine sequential = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        sequential.build();
+        SearchEngine parallel = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        parallel.setIndexingThreads( 4 );
+        parallel.build();
+        assertEquals( index( sequential ).numTerms(), index( parallel ).numTerms() );
+        for ( int doc = 0; doc < sequential.getN(); doc++ )
+        {
+            assertEquals( sequential.getDocuments().name( doc ), parallel.getDocuments().name( doc ) );
+            assertEquals( sequential.getDocuments().norm( doc ), parallel.getDocuments().norm( doc ), 1e-12 );
+        }
+        assertEquals( java.util.Arrays.toString( sequential.query( "the hobbit ring river", 10 ) ),
+                      java.util.Arrays.toString( parallel.query( "the hobbit ring river", 10 ) ) );
+    }
+
+    public void testParallelBuildOfANestedTreeMatchesSequentialBuild() throws Exception
+    {
+        //enough documents for the parallel build to hand out several batches while the tree is walked
+        for ( int i = 0; i < 300; i++ )
+        {
+            write( "shelf" + ( i % 3 ) + "/row" + ( i % 7 ) + "/book" + i + ".txt", "book " + i + ( i % 10 == 0 ? " hobbit" : "" ) );
+        }
+        SearchEngine sequential = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        sequential.build();
+        SearchEngine parallel = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        parallel.setIndexingThreads( 3 );
+        parallel.build();
+        assertEquals( 303, sequential.getN() );
+        assertEquals( 303, parallel.getN() );
+        for ( int doc = 0; doc < sequential.getN(); doc++ )
+        {
+            assertEquals( index( sequential ).documentPath( doc ), index( parallel ).documentPath( doc ) );
+        }
+        assertEquals( 31, parallel.query( "hobbit", 1000 ).length );
+        assertEquals( java.util.Arrays.toString( sequential.query( "hobbit book", 10 ) ),
+                      java.util.Arrays.toString( parallel.query( "hobbit book", 10 ) ) );
+    }
+
+    public void testPipelineStagesKeepTheDocumentOrder() throws Exception
+    {
+        for ( int i = 0; i < 300; i++ )
+        {
+            write( "shelf" + ( i % 3 ) + "/book" + i + ".txt", "book " + i + ( i % 10 == 0 ? " hobbit" : "" ) );
+        }
+        IndexBuilder builder = new IndexBuilder();
+        for ( File f : new Filter().finder( dir.getAbsolutePath() ) )
+        {
+            builder.addDocument( f );
+        }
+        IndexSnapshot expected = builder.build();
+        //small batches, runs and queues so that the stages wait on each other and batches overtake each other
+        IndexingPipeline pipeline = new IndexingPipeline( 5, 3 );
+        for ( IndexingPipeline.Stage stage : IndexingPipeline.Stage.values() )
+        {
+            if ( stage != IndexingPipeline.Stage.DISCOVER )
+            {
+                pipeline.setThreads( stage, 3 );
+            }
+        }
+        pipeline.setQueueCapacity( 1 );
+        pipeline.setMaxBatchesInFlight( 4 );
+        IndexSnapshot actual = pipeline.build( new Filter(), dir.getAbsolutePath(), false, null );
+        assertEquals( 303, actual.numDocs() );
+        for ( int doc = 0; doc < expected.numDocs(); doc++ )
+        {
+            assertEquals( expected.documentPath( doc ), actual.documentPath( doc ) );
+            assertEquals( expected.norm( doc ), actual.norm( doc ), 1e-9 );
+        }
+        assertEquals( expected.numTerms(), actual.numTerms() );
+        for ( int t = 0; t < expected.numTerms(); t++ )
+        {
+            assertEquals( expected.term( t ), actual.term( t ) );
+            assertEquals( expected.documentFrequency( t ), actual.documentFrequency( t ) );
+        }
+        IndexingPipeline.StageStats stats[] = pipeline.getStats();
+        assertEquals( IndexingPipeline.Stage.values().length, stats.length );
+        for ( IndexingPipeline.StageStats s : stats )
+        {
+            assertEquals( s.toString(), 303, s.getDocuments() );
+            assertTrue( s.toString(), s.getPeakQueueDepth() <= s.getQueueCapacity() );
+        }
+    }
+
+    public void testSpilledBuildWritesTheSameIndexFile() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.setStorePositions( true );
+        se.getIndexingPipeline().setMemoryBudget( 1 );
+        File indexFile = new File( dir, "index.bsix" );
+        se.build( indexFile );
+        assertTrue( index( se ) instanceof MappedIndex );
+        assertPositional( se );
+        se.close();
+        indexFile.delete();
+
+        for ( int i = 0; i < 400; i++ )
+        {
+            write( "shelf" + ( i % 3 ) + "/book" + i + ".txt", "book " + i + ( i % 10 == 0 ? " the hobbit" : "" ) );
+        }
+        File heapFile = new File( dir.getParentFile(), dir.getName() + "-heap.bsix" );
+        File spilledFile = new File( dir.getParentFile(), dir.getName() + "-spilled.bsix" );
+        try
+        {
+            new IndexWriter().write( new IndexingPipeline().build( new Filter(), dir.getAbsolutePath(), true, null ),
+                                     heapFile );
+            //a budget of a byte spills every batch of five documents, more runs than one merge takes
+            IndexingPipeline pipeline = new IndexingPipeline( 5, 3 );
+            pipeline.setThreads( IndexingPipeline.Stage.INVERT, 2 );
+            pipeline.setThreads( IndexingPipeline.Stage.FLUSH, 2 );
+            pipeline.setMemoryBudget( 1 );
+            pipeline.write( new Filter(), dir.getAbsolutePath(), true, null, spilledFile );
+            assertTrue( java.util.Arrays.equals( java.nio.file.Files.readAllBytes( heapFile.toPath() ),
+                                                 java.nio.file.Files.readAllBytes( spilledFile.toPath() ) ) );
+            assertEquals( "[" + heapFile.getName() + ", " + spilledFile.getName() + "]",
+                          names( dir.getParentFile().listFiles(), dir.getName() + "-" ) );
+        }
+        finally
+        {
+            heapFile.delete();
+            spilledFile.delete();
+        }
+    }
+
+    public void testSavedIndexLoadsWithoutRebuilding() throws Exception
+    {
+        SearchEngine built = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        built.build();
+        File indexFile = new File( dir, "index.bsix" );
+        built.save( indexFile );
+
+        SearchEngine loaded = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        loaded.load( indexFile );
+        assertEquals( built.getN(), loaded.getN() );
+        assertEquals( index( built ).numTerms(), index( loaded ).numTerms() );
+        assertEquals( java.util.Arrays.toString( built.query( "the hobbit ring river", 10 ) ),
+                      java.util.Arrays.toString( loaded.query( "the hobbit ring river", 10 ) ) );
+        assertEquals( "river.txt", loaded.query( "rahel" )[0] );
+    }
+
+    public void testMappedIndexAnswersLikeTheHeapIndex() throws Exception
+    {
+        SearchEngine built = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        built.build();
+        File indexFile = new File( dir, "index.bsix" );
+        built.save( indexFile );
+
+        SearchEngine mapped = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        mapped.open( indexFile );
+        InvertedIndex heap = index( built );
+        InvertedIndex index = index( mapped );
+        assertTrue( index instanceof MappedIndex );
+        for ( int t = 0; t < heap.numTerms(); t++ )
+        {
+            assertEquals( t, index.termId( heap.term( t ) ) );
+            assertEquals( heap.documentFrequency( t ), index.documentFrequency( t ) );
+        }
+        assertEquals( -1, index.termId( "zzz" ) );
+        assertEquals( -1, index.termId( "" ) );
+        assertEquals( java.util.Arrays.toString( built.query( "the hobbit ring river", 10 ) ),
+                      java.util.Arrays.toString( mapped.query( "the hobbit ring river", 10 ) ) );
+    }
+
+    public void testUpdateOnlyIndexesChangedDocuments() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        assertFalse( se.update() );
+        SegmentedIndex before = se.getSegments();
+
+        write( "dragon.txt", "Smaug the dragon slept on the gold." );
+        File river = new File( dir, "river.txt" );
+        write( "river.txt", "Estha and Rahel by the river, and a dragon." );
+        river.setLastModified( river.lastModified() + 2000 );
+        new File( dir, "ring.txt" ).delete();
+        assertTrue( se.update() );
+        assertEquals( 1, se.getLastUpdate().getAdded() );
+        assertEquals( 1, se.getLastUpdate().getUpdated() );
+        assertEquals( 1, se.getLastUpdate().getDeleted() );
+
+        SegmentedIndex after = se.getSegments();
+        assertNotSame( before, after );
+        assertEquals( 2, after.segmentCount() );
+        assertEquals( 2, after.segment( 0 ).deletedDocs() );
+        assertEquals( 2, after.segment( 1 ).numDocs() );
+        assertEquals( 3, after.numDocs() );
+        assertEquals( 3, se.getN() );
+        assertEquals( 3, se.getF().length );
+        assertEquals( 2, after.documentFrequency( "dragon" ) );
+        assertEquals( 0, se.query( "rule", 10 ).length );
+        SearchResult hits[] = se.query( "dragon", 10 );
+        assertEquals( 2, hits.length );
+        assertEquals( 1, se.query( "ring", 10 ).length );
+        assertEquals( "river", se.query( "estha", 10 )[0].getName() );
+        assertEquals( 1, before.segmentCount() );
+        assertEquals( 3, before.numDocs() );
+        assertEquals( 2, before.documentFrequency( "ring" ) );
+
+        se.forceMerge();
+        InvertedIndex merged = index( se );
+        assertEquals( 3, merged.numDocs() );
+        assertEquals( -1, merged.termId( "rule" ) );
+        assertEquals( 2, merged.documentFrequency( merged.termId( "dragon" ) ) );
+
+        SearchEngine rebuilt = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        rebuilt.build();
+        for ( int doc = 0; doc < merged.numDocs(); doc++ )
+        {
+            int same = -1;
+            for ( int other = 0; other < rebuilt.getN(); other++ )
+            {
+                if ( index( rebuilt ).documentPath( other ).equals( merged.documentPath( doc ) ) )
+                {
+                    same = other;
+                }
+            }
+            assertEquals( index( rebuilt ).norm( same ), merged.norm( doc ), 1e-12 );
+        }
+        assertEquals( java.util.Arrays.toString( rebuilt.query( "the dragon river hobbit", 10 ) ),
+                      java.util.Arrays.toString( se.query( "the dragon river hobbit", 10 ) ) );
+    }
+
+    public void testUpdateKeepsTheOldVersionOfAnUnreadableFile() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        SegmentedIndex before = se.getSegments();
+        File river = new File( dir, "river.txt" );
+        river.delete();
+        river.mkdir(); //changed, but reading it fails
+        write( "dragon.txt", "Smaug the dragon slept on the gold." );
+        File files[] = { new File( dir, "ring.txt" ), new File( dir, "hobbit.txt" ), river,
+            new File( dir, "dragon.txt" ) };
+
+        IncrementalIndexer indexer = new IncrementalIndexer();
+        SegmentedIndex after = indexer.update( before, files, "_1" );
+        assertEquals( 1, indexer.getAdded() );
+        assertEquals( 0, indexer.getUpdated() );
+        assertEquals( 0, indexer.getDeleted() );
+        assertEquals( 1, indexer.getFailed() );
+        assertEquals( 0, after.segment( 0 ).deletedDocs() );
+        assertEquals( 4, after.numDocs() );
+        assertEquals( 1, after.documentFrequency( "rahel" ) );
+        assertEquals( 1, after.documentFrequency( "dragon" ) );
+    }
+
+    public void testBackgroundMergeKeepsSegmentCountDown() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.getMergeScheduler().getPolicy().setMergeFactor( 3 );
+        se.build();
+        for ( int i = 0; i < 6; i++ )
+        {
+            write( "extra" + i + ".txt", "dragon number " + i );
+            assertTrue( se.update() );
+            assertTrue( se.getMergeScheduler().awaitIdle( 10000 ) );
+            assertTrue( se.getSegments().segmentCount() < 3 );
+        }
+        assertTrue( se.getMergeScheduler().getMergeCount() > 0 );
+        assertEquals( 9, se.getN() );
+        assertEquals( 6, se.query( "dragon", 10 ).length );
+        se.close();
+    }
+
+    public void testBackgroundMergeLeavesMappedSegmentsAlone() throws Exception
+    {
+        SearchEngine built = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        built.build();
+        File indexFile = new File( dir, "index.bsix" );
+        built.save( indexFile );
+
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.getMergeScheduler().getPolicy().setMergeFactor( 2 );
+        se.open( indexFile );
+        File river = new File( dir, "river.txt" );
+        write( "river.txt", "Estha and Rahel by the river." );
+        river.setLastModified( river.lastModified() + 2000 );
+        for ( int i = 0; i < 4; i++ )
+        {
+            write( "extra" + i + ".txt", "dragon number " + i );
+            assertTrue( se.update() );
+            assertTrue( se.getMergeScheduler().awaitIdle( 10000 ) );
+            assertTrue( se.getSegments().segment( 0 ).getIndex() instanceof MappedIndex );
+            assertEquals( 1, se.getSegments().segment( 0 ).deletedDocs() );
+        }
+        assertTrue( se.getMergeScheduler().getMergeCount() > 0 );
+        assertEquals( 4, se.query( "dragon", 10 ).length );
+        se.close();
+    }
+
+    public void testFailedBackgroundMergeIsReported() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        se.getMergeScheduler().setPolicy( new TieredMergePolicy()
+        {
+            public java.util.List<Segment> findMerge( SegmentedIndex index )
+            {
+                throw new IllegalStateException( "no room" );
+            }
+        } );
+        write( "dragon.txt", "Smaug the dragon slept on the gold." );
+        assertTrue( se.update() );
+        try
+        {
+            se.getMergeScheduler().awaitIdle( 10000 );
+            fail( "merge failure not reported" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "no room", e.getCause().getMessage() );
+        }
+        assertTrue( se.getMergeScheduler().awaitIdle( 10000 ) );
+        assertEquals( 1, se.query( "dragon", 10 ).length );
+        se.close();
+    }
+
+    public void testTopKSkippingMatchesExhaustiveRanking() throws Exception
+    {
+        String vocabulary[] = { "ring", "power", "dark", "lord", "shire", "elf", "dwarf", "river", "tower", "fire" };
+        java.util.Random random = new java.util.Random( 42 );
+        for ( int d = 0; d < 600; d++ )
+        {
+            StringBuilder text = new StringBuilder( "the of" );
+            int words = 1 + random.nextInt( 30 );
+            for ( int w = 0; w < words; w++ )
+            {
+                //skewed towards the first words so that their posting lists get long
+                text.append( ' ' ).append( vocabulary[(int) ( vocabulary.length * Math.pow( random.nextDouble(), 3 ) )] );
+            }
+            write( "doc" + d + ".txt", text.toString() );
+        }
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        File indexFile = new File( dir, "index.bsix" );
+        se.save( indexFile );
+        SearchEngine mapped = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        mapped.open( indexFile );
+        String queries[] = { "the ring of power", "dark lord", "ring ring fire", "elf dwarf river tower", "hobbit ring" };
+        for ( Similarity similarity : new Similarity[] { new CosineSimilarity(), new BM25Similarity() } )
+        {
+            se.setSimilarity( similarity );
+            mapped.setSimilarity( similarity );
+            for ( String q : queries )
+            {
+                SearchResult all[] = se.query( q, se.getN() );
+                for ( int k : new int[] { 1, 5, 20 } )
+                {
+                    String expected = java.util.Arrays.toString( java.util.Arrays.copyOf( all, Math.min( k, all.length ) ) );
+                    assertEquals( similarity + " " + q, expected, java.util.Arrays.toString( se.query( q, k ) ) );
+                    assertEquals( similarity + " " + q, expected, java.util.Arrays.toString( mapped.query( q, k ) ) );
+                }
+            }
+        }
+    }
+
+    public void testCosineAndBM25Scores()
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        //3 documents; "ring" is in 2 of them: hobbit (15 terms, tf 1) and ring (11 terms, tf 2)
+        SearchResult cosine[] = se.query( "ring", 10 );
+        InvertedIndex index = index( se );
+        for ( SearchResult hit : cosine )
+        {
+            int tf = hit.getName().equals( "ring" ) ? 2 : 1;
+            assertEquals( ( 1 + Math.log( tf ) ) / index.norm( hit.getDocId() ), hit.getScore(), 1e-12 );
+        }
+        se.setSimilarity( new BM25Similarity( 1.2, 0.75 ) );
+        SearchResult bm25[] = se.query( "ring", 10 );
+        assertEquals( 2, bm25.length );
+        assertEquals( "ring", bm25[0].getName() );
+        double idf = Math.log( 1 + ( 3 - 2 + 0.5 ) / ( 2 + 0.5 ) );
+        double averageLength = ( 15 + 11 + 8 ) / 3.0;
+        assertEquals( 11, index.documentLength( bm25[0].getDocId() ) );
+        assertEquals( idf * 2 * 2.2 / ( 2 + 1.2 * ( 0.25 + 0.75 * 11 / averageLength ) ), bm25[0].getScore(), 1e-12 );
+        assertEquals( idf * 1 * 2.2 / ( 1 + 1.2 * ( 0.25 + 0.75 * 15 / averageLength ) ), bm25[1].getScore(), 1e-12 );
+    }
+
+    public void testBooleanQueries() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        assertEquals( "[hobbit]", names( se.booleanQuery( "hobbit AND ring", 10, false ) ) );
+        assertEquals( "[hobbit, ring]", names( se.booleanQuery( "hobbit OR ring", 10, false ) ) );
+        assertEquals( "[ring]", names( se.booleanQuery( "ring AND NOT hobbit", 10, false ) ) );
+        assertEquals( "[river]", names( se.booleanQuery( "NOT (hobbit OR ring)", 10, false ) ) );
+        assertEquals( "[hobbit, river]", names( se.booleanQuery( "(hobbit OR river) NOT dragon", 10, false ) ) );
+        assertEquals( "[]", names( se.booleanQuery( "hobbit AND dragon", 10, false ) ) );
+        assertEquals( 1, se.booleanQuery( "hobbit OR ring", 1, false ).length );
+        //ranked, the boolean filter keeps exactly the documents the free text query would have scored
+        SearchResult ranked[] = se.booleanQuery( "hobbit OR ring", 10, true );
+        assertEquals( java.util.Arrays.toString( se.query( "hobbit ring", 10 ) ), java.util.Arrays.toString( ranked ) );
+    }
+
+    public void testQueryCache() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        QueryCache cache = se.getQueryCache();
+        String first = java.util.Arrays.toString( se.query( "Rings Hobbit", 10 ) );
+        //the same analyzed terms in another order and form, and k past the number of documents
+        assertEquals( first, java.util.Arrays.toString( se.query( "hobbit ring", 3 ) ) );
+        assertEquals( 1, cache.getMisses() );
+        assertEquals( 1, cache.getHits() );
+        //a repeated term weighs more, so it is another query
+        se.query( "hobbit ring ring", 10 );
+        assertEquals( 2, cache.getMisses() );
+        se.booleanQuery( "hobbit AND ring", 10, false );
+        se.booleanQuery( "Hobbits AND rings", 10, false );
+        assertEquals( 3, cache.getMisses() );
+        assertEquals( 2, cache.getHits() );
+        assertEquals( 3, cache.size() );
+
+        cache.setLimits( 2, QueryCache.DEFAULT_MAX_BYTES );
+        assertEquals( 2, cache.size() );
+        assertEquals( 1, cache.getEvictions() );
+        se.query( "hobbit ring", 10 ); //the least recently used one went
+        assertEquals( 4, cache.getMisses() );
+
+        write( "dragon.txt", "The hobbit met a dragon with a ring." );
+        se.update();
+        assertEquals( 0, cache.size() );
+        assertEquals( 3, se.query( "hobbit ring", 10 ).length );
+        assertEquals( 5, cache.getMisses() );
+        se.setSimilarity( new BM25Similarity() );
+        se.query( "hobbit ring", 10 );
+        assertEquals( 6, cache.getMisses() );
+    }
+
+    public void testPhraseAndProximityQueries() throws Exception
+    {
+        SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        try
+        {
+            se.booleanQuery( "\"one ring\"", 10, false );
+            fail( "phrase on an index without positions" );
+        }
+        catch ( IllegalStateException expected )
+        {
+        }
+        se.setStorePositions( true );
+        se.build();
+        assertPositional( se );
+        File indexFile = new File( dir, "index.bsix" );
+        se.save( indexFile );
+        SearchEngine mapped = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        mapped.open( indexFile );
+        assertPositional( mapped );
+        SearchEngine loaded = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        loaded.load( indexFile );
+        assertPositional( loaded );
+        indexFile.delete();
+        write( "shire.txt", "the shire is green" );
+        assertTrue( se.update() );
+        se.forceMerge();
+        assertTrue( index( se ).hasPositions() );
+        assertPositional( se );
+        assertEquals( "[shire]", names( se.booleanQuery( "\"the shire\"", 10, false ) ) );
+    }
+
+    private static void assertPositional( SearchEngine se )
+    {
+        assertEquals( "[hobbit]", names( se.booleanQuery( "\"hole in the ground\"", 10, false ) ) );
+        assertEquals( "[]", names( se.booleanQuery( "\"ground in the hole\"", 10, false ) ) );
+        assertEquals( "[ring]", names( se.booleanQuery( "\"one ring\" AND \"ring to rule\"", 10, false ) ) );
+        assertEquals( "[]", names( se.booleanQuery( "hobbit NEAR/1 lived", 10, false ) ) );
+        assertEquals( "[hobbit]", names( se.booleanQuery( "lived NEAR/2 hobbit", 10, true ) ) );
+        assertEquals( "[hobbit, ring]", names( se.booleanQuery( "\"a ring\" OR rule NEAR/3 one", 10, false ) ) );
+    }
+
+    public void testConcurrentQueriesSeeTheSameSnapshot() throws Exception
+    {
+        final SearchEngine se = new SearchEngine( dir.getAbsolutePath(), ResultType.DOCUMENT_NAME );
+        se.build();
+        final String queries[] = { "hobbit ring", "rahel river", "ring", "the hole", "brother ring hobbit" };
+        final String expected[] = new String[queries.length];
+        for ( int i = 0; i < queries.length; i++ )
+        {
+            expected[i] = java.util.Arrays.toString( se.query( queries[i], 10 ) );
+        }
+        ExecutorService pool = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for ( int t = 0; t < 8; t++ )
+            {
+                final int offset = t;
+                futures.add( pool.submit( new Callable<Boolean>()
+                {
+                    public Boolean call()
+                    {
+                        for ( int i = 0; i < 500; i++ )
+                        {
+                            int q = ( i + offset ) % queries.length;
+                            if ( !expected[q].equals( java.util.Arrays.toString( se.query( queries[q], 10 ) ) ) )
+                            {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                } ) );
+            }
+            for ( Future<Boolean> f : futures )
+            {
+                assertTrue( f.get() );
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    private static String names( SearchResult hits[] )
+    {
+        List < String > names = new ArrayList < String > ();
+        for ( SearchResult hit : hits )
+        {
+            names.add( hit.getName() );
+        }
+        java.util.Collections.sort( names ); //index order follows the directory listing
+        return names.toString();
+    }
+
+    /*
+     * the sorted names of the files that start with prefix.
+     */
+    private static String names( File files[], String prefix )
+    {
+        List < String > names = new ArrayList < String > ();
+        for ( File f : files )
+        {
+            if ( f.getName().startsWith( prefix ) )
+            {
+                names.add( f.getName() );
+            }
+        }
+        java.util.Collections.sort( names );
+        return names.toString();
+    }
+
+    private static InvertedIndex index( SearchEngine se )
+    {
+        assertEquals( 1, se.getSegments().segmentCount() );
+        return se.getSegments().segment( 0 ).getIndex();
+    }
+
+    private void write( String name, String text ) throws IOException
+    {
+        File f = new File( dir, name );
+        f.getParentFile().mkdirs();
+        FileWriter w = new FileWriter( f );
+        try
+        {
+            w.write( text );
+        }
+        finally
+        {
+            w.close();
+        }
+    }
+
+    private static void delete( File f )
+    {
+        File children[] = f.listFiles();
+        if ( children != null )
+        {
+            for ( File c : children )
+            {
+                delete( c );
+            }
+        }
+        f.delete();
+    }
+}
@@ -0,0 +1,36 @@
+package org.betasearch.arvdroid.BetaSearch;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the hash based term dictionary.
+ */
+public class TermDictionaryTest 
+    extends TestCase
+{
+    public void testIdsAreStableAcrossGrowth()
+    {
+        TermDictionary dictionary = new TermDictionary();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            assertEquals( i, dictionary.add( "term" + i ) );
+        }
+        assertEquals( 5000, dictionary.size() );
+        assertEquals( 42, dictionary.add( "term42" ) );
+        assertEquals( 4999, dictionary.get( "term4999" ) );
+        assertEquals( -1, dictionary.get( "missing" ) );
+        assertEquals( "term7", dictionary.term( 7 ) );
+    }
+
+    public void testSortedIds()
+    {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.add( "ring" );
+        dictionary.add( "baggin" );
+        dictionary.add( "hobbit" );
+        int sorted[] = dictionary.sortedIds();
+        assertEquals( "baggin", dictionary.term( sorted[0] ) );
+        assertEquals( "hobbit", dictionary.term( sorted[1] ) );
+        assertEquals( "ring", dictionary.term( sorted[2] ) );
+    }
+}